@@ -9,18 +9,41 @@ package net.xp_forge.maven.plugins.xp;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
+import java.util.Set;
 import java.util.List;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Iterator;
+import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.maven.model.Resource;
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 
 import net.xp_forge.maven.plugins.xp.exec.RunnerException;
+import net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener;
 import net.xp_forge.maven.plugins.xp.exec.runners.xp.XccRunner;
+import net.xp_forge.maven.plugins.xp.exec.runners.xp.XccServer;
 import net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput;
+import net.xp_forge.maven.plugins.xp.io.StampFile;
+import net.xp_forge.maven.plugins.xp.io.DependencyGraph;
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex;
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint;
 import net.xp_forge.maven.plugins.xp.util.FileUtils;
+import net.xp_forge.maven.plugins.xp.util.ExecuteUtils;
+import net.xp_forge.maven.plugins.xp.filter.ExtensionFileFilter;
 import net.xp_forge.maven.plugins.xp.util.MavenResourceUtils;
+import net.xp_forge.maven.plugins.xp.report.CompileTimings;
+import net.xp_forge.maven.plugins.xp.report.XccTimingListener;
 
 /**
  * Wrapper around the XP-Framework "XccRunner" runner
@@ -45,6 +68,59 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
    */
   protected boolean overwrite;
 
+  /**
+   * Only pass new or changed [*.xp] sources to the xcc compiler. Fingerprints of the compiled
+   * sources are kept in "${project.build.directory}/{classes}.xcc-index" between builds
+   *
+   * @parameter expression="${xp.compile.incremental}" default-value="false"
+   */
+  protected boolean incremental;
+
+  /**
+   * Whether to compile all source roots using a single xcc runner instance. If false, a new xcc runner
+   * instance will be spawned for every source root (default).
+   *
+   * @parameter expression="${xp.compile.singleInstance}" default-value="false"
+   */
+  protected boolean singleInstance;
+
+  /**
+   * Number of concurrent xcc workers. If greater than 1, sources are distributed over several
+   * xcc processes, each using its own scratch directory under "${project.build.directory}/.xcc"
+   *
+   * @parameter expression="${xp.compile.forkCount}" default-value="1"
+   */
+  protected int forkCount;
+
+  /**
+   * Send compile requests to a persistent xcc compile server instead of spawning a new xcc runner
+   * every time. The server is started on first use and kept for the rest of the Maven session, so
+   * the XP-Framework and compiler bootstrap is only paid once
+   *
+   * @parameter expression="${xp.compile.server}" default-value="false"
+   */
+  protected boolean server;
+
+  /**
+   * Timeout in seconds for a single request to the xcc compile server; the server is killed
+   * and compilation fails when it is exceeded. 0 for none
+   *
+   * @parameter expression="${xp.compile.serverTimeout}" default-value="600"
+   */
+  protected int serverTimeout;
+
+  /**
+   * Skip xcc altogether if neither the sources nor the classpath, emitter, profiles or XP runtime
+   * changed since the last successful compile. The digest of these inputs is kept in
+   * "${project.build.directory}/{classes}.xcc-stamp"
+   *
+   * @parameter expression="${xp.compile.skipUpToDate}" default-value="true"
+   */
+  protected boolean skipUpToDate;
+
+  // Timings of all xcc invocations of this mojo
+  private CompileTimings timings= new CompileTimings();
+
   /**
    * Add path to classpath
    *
@@ -130,6 +206,14 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
    */
   protected abstract Map<String, String> getAppDirectoriesMap();
 
+  /**
+   * Get how application directories are materialized in the target directory ("copy" or "link"),
+   * keyed by application directory name
+   *
+   * @return java.util.Map<java.lang.String, java.lang.String> null to copy all
+   */
+  protected abstract Map<String, String> getAppDirectoriesModes();
+
   /**
    * {@inheritDoc}
    *
@@ -173,14 +257,64 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
       // Add additional classpath
       this.addClasspath(this.getAdditionalClasspath());
 
-      // Execute [xcc]
-      this.executeXcc(compileSourceRoots, this.getClassesDirectory());
+      // Nothing changed since last compile
+      File classesDirectory = this.getClassesDirectory();
+      StampFile stamp       = this.getXccStamp(compileSourceRoots, classesDirectory);
+      if (null != stamp && classesDirectory.exists() && stamp.isUpToDate()) {
+        getLog().info("Classes directory    [" + classesDirectory + "] is up to date; not running [xcc]");
+
+      } else {
+        if (null != stamp) stamp.delete();
+
+        // Execute [xcc]
+        if (this.incremental) {
+          this.executeIncrementalXcc(compileSourceRoots, classesDirectory);
+        } else {
+          this.executeXcc(compileSourceRoots, classesDirectory);
+        }
+
+        // Write timings report
+        this.writeTimingsReport(classesDirectory);
+
+        // Record inputs of this successful compile
+        if (null != stamp) {
+          try {
+            stamp.setComment(CREATED_BY_NOTICE);
+            stamp.dump();
+          } catch (IOException ex) {
+            throw new MojoExecutionException("Cannot write [" + stamp.getFile() + "]", ex);
+          }
+        }
+      }
     }
 
     // Copy application resources
     this.copyAppDirectories(this.getAppDirectoriesMap());
   }
 
+  /**
+   * Write timings of all xcc invocations to "${project.build.directory}/xp-reports/{phase}-timings.json",
+   * where phase is "compile", "test-compile" or "it-compile"
+   *
+   * @param  java.io.File classesDirectory
+   * @return void
+   */
+  private void writeTimingsReport(File classesDirectory) {
+    if (this.timings.isEmpty()) return;
+
+    // "classes" => "compile", "test-classes" => "test-compile", ...
+    String name= classesDirectory.getName();
+    name= (name.endsWith("classes") ? name.substring(0, name.length() - "classes".length()) : name + "-") + "compile-timings.json";
+
+    File reportFile= new File(this.outputDirectory, "xp-reports" + File.separator + name);
+    try {
+      this.timings.dump(reportFile);
+      getLog().debug("Compile timings      [" + reportFile + "]");
+    } catch (IOException ex) {
+      getLog().warn("Cannot write compile timings to [" + reportFile + "]: " + ex.getMessage());
+    }
+  }
+
   /**
    * Execute XP-Framework XCC compiler
    *
@@ -191,6 +325,22 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
    */
   public void executeXcc(List<String> sourceDirectories, File classesDirectory) throws MojoExecutionException {
 
+    // Compile all source roots together
+    if (this.singleInstance) {
+      List<File> sources= new ArrayList<File>();
+      for (String sourceDirectory : sourceDirectories) {
+        getLog().info("Source directory    [" + sourceDirectory + "]");
+        sources.add(new File(sourceDirectory));
+      }
+      getLog().info("PHP include pattern [" + this.getPhpIncludePattern() + "]");
+      getLog().info("Classes directory    [" + classesDirectory + "]");
+      getLog().debug("Sourcepaths          [" + (null == this.sourcepaths ? "NULL" : this.sourcepaths) + "]");
+      getLog().debug("Classpaths           [" + (null == this.classpaths  ? "NULL" : this.classpaths)  + "]");
+
+      this.executeXccRunner(sources, classesDirectory);
+      return;
+    }
+
     // Compile each source root
     Iterator i= sourceDirectories.iterator();
     while (i.hasNext()) {
@@ -207,7 +357,6 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
    * @throws org.apache.maven.plugin.MojoExecutionException When execution of the xcc runner failed
    */
   public void executeXcc(String sourceDirectory, File classesDirectory) throws MojoExecutionException {
-    Iterator i;
 
     // Debug info
     getLog().info("Source directory    [" + sourceDirectory + "]");
@@ -216,12 +365,515 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
     getLog().debug("Sourcepaths          [" + (null == this.sourcepaths ? "NULL" : this.sourcepaths) + "]");
     getLog().debug("Classpaths           [" + (null == this.classpaths  ? "NULL" : this.classpaths)  + "]");
 
+    // Compile whole source directory
+    List<File> sources= new ArrayList<File>();
+    sources.add(new File(sourceDirectory));
+    this.executeXccRunner(sources, classesDirectory);
+  }
+
+  /**
+   * Execute XP-Framework XCC compiler only for new or changed sources
+   *
+   * @param  java.util.List<String> sourceDirectories Source where .xp file are
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException When execution of the xcc runner failed
+   */
+  public void executeIncrementalXcc(List<String> sourceDirectories, File classesDirectory) throws MojoExecutionException {
+    File indexFile= new File(classesDirectory.getParentFile(), classesDirectory.getName() + ".xcc-index");
+    getLog().info("Classes directory    [" + classesDirectory + "]");
+    getLog().debug("Fingerprint index    [" + indexFile + "]");
+
+    // Load fingerprints of the previous build
+    FingerprintIndex index= new FingerprintIndex();
+    try {
+      index.load(indexFile);
+    } catch (IOException ex) {
+      getLog().warn("Cannot read [" + indexFile + "]; recompiling all sources");
+      index.clear();
+    }
+
+    // Compiler settings changed; everything must be recompiled
+    String signature = this.getXccSignature();
+    boolean rebuild  = !signature.equals(index.getSignature());
+    if (rebuild && !index.paths().isEmpty()) {
+      getLog().info("Compiler settings changed; recompiling all sources");
+    }
+
+    // Load dependencies recorded by the previous build
+    File graphFile        = new File(classesDirectory.getParentFile(), classesDirectory.getName() + ".xcc-deps");
+    DependencyGraph graph = new DependencyGraph();
+    try {
+      graph.load(graphFile);
+    } catch (IOException ex) {
+      getLog().warn("Cannot read [" + graphFile + "]; recompiling all sources");
+      rebuild= true;
+    }
+
+    // Find new and changed sources
+    Map<String, File> roots     = new LinkedHashMap<String, File>();
+    Map<File, List<File>> files = new LinkedHashMap<File, List<File>>();
+    Set<String> changed         = new HashSet<String>();
+    try {
+      for (String sourceDirectory : sourceDirectories) {
+        File sourceRoot= new File(sourceDirectory);
+        files.put(sourceRoot, FileUtils.listFiles(sourceRoot, new ExtensionFileFilter("xp")));
+
+        for (File file : files.get(sourceRoot)) {
+          String path= file.getAbsolutePath();
+          roots.put(path, sourceRoot);
+          if (rebuild || this.isStale(index.get(path), file, classesDirectory)) {
+            changed.add(path);
+          }
+        }
+      }
+
+      // Classes depending on changed or removed sources must be compiled again, too
+      Set<String> removed= new HashSet<String>(index.paths());
+      removed.addAll(graph.paths());
+      removed.removeAll(roots.keySet());
+
+      Set<String> seeds= new HashSet<String>(changed);
+      seeds.addAll(removed);
+      for (String path : changed) {
+        graph.add(new File(path));
+      }
+      for (String path : roots.keySet()) {
+        if (!graph.contains(path)) graph.add(new File(path));
+      }
+
+      Set<String> dependents= graph.getDependents(seeds);
+      dependents.retainAll(roots.keySet());
+      dependents.removeAll(changed);
+      if (!dependents.isEmpty()) {
+        getLog().info("Recompiling [" + dependents.size() + "] source(s) depending on changed classes");
+        for (String path : dependents) {
+          getLog().debug(" - Dependent " + path);
+        }
+        changed.addAll(dependents);
+      }
+
+      for (String path : removed) {
+        graph.remove(path);
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot inspect sources", ex);
+    }
+
+    // Sources to hand over to xcc
+    List<File> sources             = new ArrayList<File>();
+    Map<File, String> staleSources = new LinkedHashMap<File, String>();
+    for (Map.Entry<File, List<File>> root : files.entrySet()) {
+      int staleCount= 0;
+      for (File file : root.getValue()) {
+        if (!changed.contains(file.getAbsolutePath())) continue;
+        staleSources.put(file, FileUtils.getRelativePath(file, root.getKey()));
+        sources.add(file);
+        staleCount++;
+      }
+
+      // Everything in this root is stale; hand over the directory instead of single files
+      if (staleCount > 0 && staleCount == root.getValue().size()) {
+        sources.removeAll(root.getValue());
+        sources.add(root.getKey());
+      }
+      getLog().info("Source directory    [" + root.getKey() + "]: " + staleCount + " of " + root.getValue().size() + " source(s) to compile");
+    }
+
+    // Remove classes compiled from sources that no longer exist
+    for (String path : new ArrayList<String>(index.paths())) {
+      if (roots.containsKey(path)) continue;
+
+      Fingerprint fingerprint= index.remove(path);
+      for (String output : fingerprint.outputs) {
+        File outputFile= new File(classesDirectory, output);
+        getLog().info("Removing [" + outputFile + "] as [" + path + "] no longer exists");
+        outputFile.delete();
+      }
+    }
+
+    // Compile changed sources
+    if (staleSources.isEmpty()) {
+      getLog().info("All [*.xp] sources are up to date");
+    } else {
+      getLog().debug("Sourcepaths          [" + (null == this.sourcepaths ? "NULL" : this.sourcepaths) + "]");
+      getLog().debug("Classpaths           [" + (null == this.classpaths  ? "NULL" : this.classpaths)  + "]");
+      this.executeXccRunner(sources, classesDirectory);
+    }
+
+    // Record fingerprints of the compiled sources
+    try {
+      for (Map.Entry<File, String> entry : staleSources.entrySet()) {
+        Fingerprint fingerprint= new Fingerprint(entry.getKey());
+        fingerprint.checksum= FileUtils.getChecksum(entry.getKey());
+
+        // Only track the output if the emitter generated it where expected
+        String output= entry.getValue().substring(0, entry.getValue().length() - ".xp".length()) + ".class.php";
+        if (new File(classesDirectory, output).exists()) {
+          fingerprint.outputs.add(output);
+        }
+        index.put(fingerprint);
+      }
+
+      index.setSignature(signature);
+      index.setComment(CREATED_BY_NOTICE);
+      index.dump(indexFile);
+
+      graph.setComment(CREATED_BY_NOTICE);
+      graph.dump(graphFile);
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot write [" + indexFile + "]", ex);
+    }
+  }
+
+  /**
+   * Check whether the specified source needs to be compiled again
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint fingerprint null if never compiled
+   * @param  java.io.File source
+   * @param  java.io.File classesDirectory
+   * @return boolean
+   * @throws java.io.IOException
+   */
+  private boolean isStale(Fingerprint fingerprint, File source, File classesDirectory) throws IOException {
+    if (null == fingerprint) return true;
+
+    // Compiled class was removed in the meantime
+    for (String output : fingerprint.outputs) {
+      if (!new File(classesDirectory, output).exists()) return true;
+    }
+
+    // Size and timestamp unchanged
+    if (fingerprint.matches(source)) return false;
+
+    // Touched, but contents are the same
+    if (FileUtils.getChecksum(source).equals(fingerprint.checksum)) {
+      fingerprint.size         = source.length();
+      fingerprint.lastModified = source.lastModified();
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Calculate digest of all xcc inputs: sources, classpath (including checksums of dependency xars),
+   * sourcepaths, emitter, profiles and XP runtime
+   *
+   * @param  java.util.List<String> sourceDirectories Source where .xp file are
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @return net.xp_forge.maven.plugins.xp.io.StampFile null if ${xp.compile.skipUpToDate} is disabled
+   * @throws org.apache.maven.plugin.MojoExecutionException When inputs cannot be inspected
+   */
+  private StampFile getXccStamp(List<String> sourceDirectories, File classesDirectory) throws MojoExecutionException {
+    if (!this.skipUpToDate) return null;
+
+    StampFile stamp= new StampFile(new File(classesDirectory.getParentFile(), classesDirectory.getName() + ".xcc-stamp"));
+    try {
+
+      // Compiler settings and runtime
+      stamp.add("signature", this.getXccSignature());
+      this.addRuntimeToStamp(stamp);
+
+      // Sources
+      for (String sourceDirectory : sourceDirectories) {
+        stamp.addDirectory(new File(sourceDirectory));
+      }
+
+      // Dependencies; checksums, as artifacts may be replaced keeping size and timestamp
+      List<File> xars= new ArrayList<File>();
+      for (Artifact artifact : this.getArtifacts(false)) {
+        if (artifact.getType().equals("xar") && null != artifact.getFile()) {
+          xars.add(artifact.getFile());
+        }
+      }
+      Collections.sort(xars);
+      for (File xar : xars) {
+        stamp.addChecksum(xar);
+      }
+
+      // Classpaths (PHP sources, classes directory for tests, ...) and sourcepaths
+      for (List<String> paths : Arrays.asList(this.classpaths, this.sourcepaths)) {
+        if (null == paths) continue;
+        for (String path : paths) {
+          File file= new File(path.startsWith("!") ? path.substring(1) : path);
+          if (file.isDirectory()) {
+            stamp.addDirectory(file);
+          } else {
+            stamp.addFile(file);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot inspect xcc inputs", ex);
+    }
+
+    getLog().debug("Compile stamp        [" + stamp.getFile() + "]: " + stamp.getDigest());
+    return stamp;
+  }
+
+  /**
+   * Get a string representation of the compiler settings that affect the generated classes
+   *
+   * @return java.lang.String
+   */
+  private String getXccSignature() {
+    return "emitter=" + (null == this.emitter ? "" : this.emitter) + ";profiles=" + (null == this.profiles ? "" : this.profiles);
+  }
+
+  /**
+   * Run XP-Framework XCC compiler on the specified sources
+   *
+   * @param  java.util.List<java.io.File> sources Source files or directories to compile
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException When execution of the xcc runner failed
+   */
+  protected void executeXccRunner(List<File> sources, File classesDirectory) throws MojoExecutionException {
+
+    // Expand source directories; needed to distribute sources and for the timings report
+    List<File> files= new ArrayList<File>();
+    try {
+      for (File source : sources) {
+        if (source.isDirectory()) {
+          files.addAll(FileUtils.listFiles(source, new ExtensionFileFilter("xp")));
+        } else {
+          files.add(source);
+        }
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot inspect sources", ex);
+    }
+
+    // Distribute sources over several xcc workers
+    if (this.forkCount > 1 && files.size() > 1) {
+      this.executeXccWorkers(files, classesDirectory);
+      return;
+    }
+
+    // Per-file timings can only be derived from verbose output
+    long started               = System.currentTimeMillis();
+    XccTimingListener listener = this.verbose ? new XccTimingListener(this.timings) : null;
+
+    // Send sources to the compile server
+    if (this.server) {
+      this.executeXccServer(sources, classesDirectory, listener);
+
+    // Execute runner
+    } else {
+      XccRunner runner= this.getXccRunner(sources, classesDirectory, this.outputDirectory);
+      if (null != listener) runner.addOutputListener(listener);
+      try {
+        runner.execute();
+      } catch (RunnerException ex) {
+        throw new MojoExecutionException("Execution of [xcc] runner failed", ex);
+      }
+    }
+
+    if (null != listener) listener.finish();
+    this.timings.addInvocation(this.getInvocationName(sources), files.size(), System.currentTimeMillis() - started);
+  }
+
+  /**
+   * Get a short description of the specified sources for the timings report
+   *
+   * @param  java.util.List<java.io.File> sources
+   * @return java.lang.String
+   */
+  private String getInvocationName(List<File> sources) {
+    if (sources.isEmpty()) return "";
+
+    String name= ExecuteUtils.getRelativeToWorkingDirectory(sources.get(0), this.basedir);
+    return sources.size() > 1 ? name + " (+" + (sources.size() - 1) + " more)" : name;
+  }
+
+  /**
+   * Compile the specified sources using the persistent xcc compile server; the server is
+   * started on first use and shared by all compile mojos of the current project
+   *
+   * @param  java.util.List<java.io.File> sources Source files or directories to compile
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @param  net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener listener null for none
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException When compilation failed
+   */
+  protected void executeXccServer(List<File> sources, File classesDirectory, RunnerOutputListener listener) throws MojoExecutionException {
+    File workingDirectory= new File(this.outputDirectory, ".runtime" + File.separator + "xcc-server");
+
+    // Extract server class; always overwritten, so it matches this plugin version
+    File serverClass= new File(workingDirectory, XccServer.CLASS_NAME + ".class.php");
+    try {
+      workingDirectory.mkdirs();
+      ExecuteUtils.saveResource(XccServer.RESOURCE_NAME, serverClass);
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot extract xcc compile server to [" + workingDirectory + "]", ex);
+    }
+
+    // Environment
+    Map<String, String> environment= new HashMap<String, String>();
+    if (null != this.use_xp) {
+      environment.put("USE_XP", this.use_xp);
+    }
+
+    // One server per runners setup, project and Maven session: classes loaded by a server
+    // cannot be unloaded, so they must not leak into other projects
+    File executable = new File(this.runnersDirectory, "xp");
+    String key      = executable.getAbsolutePath() + "|" + this.use_xp + "|" + this.project.getId() + "|" + this.session.getStartTime().getTime();
+    try {
+      XccServer server= XccServer.getInstance(key, executable, workingDirectory, environment, getLog());
+      server.setTimeout(this.serverTimeout * 1000L);
+      server.compile(this.getXccRunnerInput(sources, classesDirectory), getLog(), listener);
+    } catch (RunnerException ex) {
+      throw new MojoExecutionException("Execution of [xcc] compile server failed", ex);
+    }
+  }
+
+  /**
+   * Compile the specified source files using ${xp.compile.forkCount} concurrent xcc workers. Each
+   * worker gets its own working directory (and thus its own [project.pth]) and output directory;
+   * compiled classes are moved to the classes directory once all workers have finished
+   *
+   * @param  java.util.List<java.io.File> files Source files to compile
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException When execution of a xcc worker failed
+   */
+  protected void executeXccWorkers(List<File> files, File classesDirectory) throws MojoExecutionException {
+    int workerCount= Math.min(this.forkCount, files.size());
+    getLog().info("Compiling [" + files.size() + "] source(s) using [" + workerCount + "] xcc workers");
+
+    // Distribute sources, biggest first, to the worker with the least bytes to compile
+    List<File> sorted= new ArrayList<File>(files);
+    Collections.sort(sorted, new Comparator<File>() {
+      public int compare(File a, File b) {
+        return a.length() < b.length() ? 1 : (a.length() > b.length() ? -1 : 0);
+      }
+    });
+
+    List<List<File>> slices = new ArrayList<List<File>>();
+    long[] load             = new long[workerCount];
+    for (int w= 0; w < workerCount; w++) {
+      slices.add(new ArrayList<File>());
+    }
+    for (File file : sorted) {
+      int lightest= 0;
+      for (int w= 1; w < workerCount; w++) {
+        if (load[w] < load[lightest]) lightest= w;
+      }
+      slices.get(lightest).add(file);
+      load[lightest]+= file.length();
+    }
+
+    // Start workers
+    long poolStarted        = System.currentTimeMillis();
+    File workersDirectory   = new File(this.outputDirectory, ".xcc");
+    List<File> outputs      = new ArrayList<File>();
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    ExecutorService pool    = Executors.newFixedThreadPool(workerCount);
+    try {
+      for (int w= 0; w < workerCount; w++) {
+        File workingDirectory = new File(workersDirectory, "worker-" + w);
+        File outputdir        = new File(workingDirectory, "classes");
+        try {
+          FileUtils.deleteDirectory(outputdir);
+        } catch (IOException ex) {
+          throw new MojoExecutionException("Cannot cleanup xcc worker directory [" + outputdir + "]", ex);
+        }
+
+        getLog().debug(" - Worker #" + w + ": " + slices.get(w).size() + " source(s) in [" + workingDirectory + "]");
+        final XccRunner runner           = this.getXccRunner(slices.get(w), outputdir, workingDirectory);
+        final XccTimingListener listener = this.verbose ? new XccTimingListener(this.timings) : null;
+        final String name                = "worker-" + w;
+        final int fileCount              = slices.get(w).size();
+        if (null != listener) runner.addOutputListener(listener);
+
+        outputs.add(outputdir);
+        futures.add(pool.submit(new Callable<Object>() {
+          public Object call() throws RunnerException {
+            long started= System.currentTimeMillis();
+            runner.execute();
+            if (null != listener) listener.finish();
+            timings.addWorker(name, fileCount, System.currentTimeMillis() - started);
+            return null;
+          }
+        }));
+      }
+
+      // Wait for all workers to finish
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          throw new MojoExecutionException("Execution of [xcc] runner failed", ex.getCause());
+        } catch (InterruptedException ex) {
+          throw new MojoExecutionException("Interrupted while waiting for [xcc] workers", ex);
+        }
+      }
+      this.timings.addWorkers(files.size(), System.currentTimeMillis() - poolStarted);
+    } finally {
+      pool.shutdownNow();
+    }
+
+    // Merge worker results into classes directory
+    try {
+      for (File outputdir : outputs) {
+        for (File compiled : FileUtils.listFiles(outputdir, null)) {
+          File target= new File(classesDirectory, FileUtils.getRelativePath(compiled, outputdir));
+          target.getParentFile().mkdirs();
+          target.delete();
+          if (!compiled.renameTo(target)) {
+            FileUtils.copyFile(compiled, target);
+          }
+        }
+        FileUtils.deleteDirectory(outputdir);
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot merge compiled classes into [" + classesDirectory + "]", ex);
+    }
+  }
+
+  /**
+   * Configure a XP-Framework XCC runner for the specified sources
+   *
+   * @param  java.util.List<java.io.File> sources Source files or directories to compile
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @param  java.io.File workingDirectory Runner working directory (where [project.pth] is written)
+   * @return net.xp_forge.maven.plugins.xp.exec.runners.xp.XccRunner
+   */
+  protected XccRunner getXccRunner(List<File> sources, File classesDirectory, File workingDirectory) {
+
+    // Configure [xcc] runner
+    File executable= new File(this.runnersDirectory, "xcc");
+    XccRunner runner= new XccRunner(executable, this.getXccRunnerInput(sources, classesDirectory));
+    runner.setLog(getLog());
+
+    // Set runner working directory
+    runner.setWorkingDirectory(workingDirectory);
+
+    // Set USE_XP environment variable
+    if (null != this.use_xp) {
+      runner.setEnvironmentVariable("USE_XP", this.use_xp);
+    }
+
+    return runner;
+  }
+
+  /**
+   * Prepare xcc input for the specified sources
+   *
+   * @param  java.util.List<java.io.File> sources Source files or directories to compile
+   * @param  java.io.File classesDirectory Destination where to output compiled classes
+   * @return net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput
+   */
+  protected XccRunnerInput getXccRunnerInput(List<File> sources, File classesDirectory) {
+    Iterator i;
+
     // Prepare xcc input
     XccRunnerInput input= new XccRunnerInput();
     input.verbose= this.verbose;
 
     // Add dependency classpaths
-    input.addClasspath(this.getArtifacts(false));
+    input.addClasspath(this.getDependencyClasspath());
 
     // Add custom classpaths
     input.addClasspath(this.classpaths);
@@ -248,28 +900,12 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
     // Add outputdir
     input.outputdir= classesDirectory;
 
-    // Add source
-    input.addSource(new File(sourceDirectory));
-
-    // Configure [xcc] runner
-    File executable= new File(this.runnersDirectory, "xcc");
-    XccRunner runner= new XccRunner(executable, input);
-    runner.setLog(getLog());
-
-    // Set runner working directory to [/target]
-    runner.setWorkingDirectory(this.outputDirectory);
-
-    // Set USE_XP environment variable
-    if (null != this.use_xp) {
-      runner.setEnvironmentVariable("USE_XP", this.use_xp);
+    // Add sources
+    for (File source : sources) {
+      input.addSource(source);
     }
 
-    // Execute runner
-    try {
-      runner.execute();
-    } catch (RunnerException ex) {
-      throw new MojoExecutionException("Execution of [xcc] runner failed", ex);
-    }
+    return input;
   }
 
   /**
@@ -344,15 +980,61 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
       resource.setFiltering(false);
       resource.setDirectory(phpSourceRoot);
       resources.add(resource);
+    }
 
-      // Filter resources
-      try {
-        MavenResourceUtils.copyResources(resources, classesDirectory, this.project, this.session, this.mavenResourcesFiltering, this.overwrite);
+    // Copy all roots at once
+    try {
+      this.copyResources(resources, classesDirectory, new File(classesDirectory.getParentFile(), classesDirectory.getName() + ".php-index"));
 
-      } catch(IOException ex) {
-        throw new MojoExecutionException("Failed to copy PHP sources", ex);
+    } catch(IOException ex) {
+      throw new MojoExecutionException("Failed to copy PHP sources", ex);
+    }
+  }
+
+  /**
+   * Copy resources; resources that need no filtering are synced using the specified index file
+   * (only new or changed files are copied), the others are handed to maven-filtering
+   *
+   * @param  java.util.List<org.apache.maven.model.Resource> resources
+   * @param  java.io.File targetDirectory
+   * @param  java.io.File indexFile
+   * @return void
+   * @throws java.io.IOException when I/O errors occur
+   */
+  protected void copyResources(List<Resource> resources, File targetDirectory, File indexFile) throws IOException {
+    this.copyResources(resources, targetDirectory, indexFile, false);
+  }
+
+  /**
+   * Copy resources; resources that need no filtering are synced using the specified index file
+   * and are hard-linked instead of copied if link is true
+   *
+   * @param  java.util.List<org.apache.maven.model.Resource> resources
+   * @param  java.io.File targetDirectory
+   * @param  java.io.File indexFile
+   * @param  boolean link
+   * @return void
+   * @throws java.io.IOException when I/O errors occur
+   */
+  protected void copyResources(List<Resource> resources, File targetDirectory, File indexFile, boolean link) throws IOException {
+    List<Resource> filtered = new ArrayList<Resource>();
+    List<Resource> plain    = new ArrayList<Resource>();
+    for (Resource resource : resources) {
+      if (resource.isFiltering()) {
+        filtered.add(resource);
+      } else {
+        plain.add(resource);
       }
     }
+
+    // Plain copy
+    if (!plain.isEmpty()) {
+      int copied= MavenResourceUtils.syncResources(plain, targetDirectory, this.basedir, indexFile, this.overwrite, link);
+      getLog().debug((link ? "Linked [" : "Copied [") + copied + "] changed file(s) to [" + targetDirectory + "]");
+    }
+
+    // Filtering
+    MavenResourceUtils.copyResources(filtered, targetDirectory, this.project, this.session, this.mavenResourcesFiltering, this.overwrite);
   }
 
   /**
@@ -367,6 +1049,7 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
 
     // Sanity check
     if (null == directoriesMap) return;
+    Map<String, String> modes= this.getAppDirectoriesModes();
 
     // Process each application directory map entry
     for (Map.Entry<String, String> entry:directoriesMap.entrySet()) {
@@ -377,15 +1060,27 @@ public abstract class AbstractCompileMojo extends AbstractXpMojo {
       if (!new File(this.basedir, srcName).exists()) continue;
       getLog().debug(" * [" + srcName + "] => [target" + File.separator + dstName + "]");
 
+      // Copy or link files?
+      String mode= null == modes ? null : modes.get(entry.getKey());
+      if (null == mode) mode= "copy";
+      if (!mode.equals("copy") && !mode.equals("link")) {
+        throw new MojoExecutionException("Invalid mode [" + mode + "] for application directory [" + entry.getKey() + "]; expecting copy or link");
+      }
+
       // Define resources
       Resource resource= new Resource();
       resource.setFiltering(false);
       resource.setDirectory(srcName);
 
-      // Copy resources
+      // Copy resources; several directories may map to the same target, so index by source
       try {
         File dstFile= new File(this.outputDirectory, dstName);
-        MavenResourceUtils.copyResource(resource, dstFile, this.project, this.session, this.mavenResourcesFiltering, this.overwrite);
+        this.copyResources(
+          Collections.singletonList(resource),
+          dstFile,
+          new File(dstFile.getParentFile(), dstFile.getName() + "." + entry.getKey() + ".copy-index"),
+          mode.equals("link")
+        );
 
       } catch(IOException ex) {
         throw new MojoExecutionException("Failed to copy application resources", ex);
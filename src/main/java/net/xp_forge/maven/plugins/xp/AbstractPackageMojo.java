@@ -14,9 +14,11 @@ import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.TimeZone;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 
 import org.apache.maven.artifact.Artifact;
@@ -29,9 +31,12 @@ import org.codehaus.plexus.archiver.util.DefaultFileSet;
 
 import net.xp_forge.maven.plugins.xp.io.IniFile;
 import net.xp_forge.maven.plugins.xp.io.PthFile;
+import net.xp_forge.maven.plugins.xp.io.StampFile;
 import net.xp_forge.maven.plugins.xp.util.FileUtils;
 import net.xp_forge.maven.plugins.xp.util.ArchiveUtils;
 import net.xp_forge.maven.plugins.xp.logging.LogLogger;
+import net.xp_forge.maven.plugins.xp.archiver.xar.XarArchiver;
+import net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter;
 import net.xp_forge.maven.plugins.xp.filter.ExtensionFileFilter;
 
 import static net.xp_forge.maven.plugins.xp.AbstractXpMojo.*;
@@ -56,6 +61,58 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
    */
   protected String finalName;
 
+  /**
+   * Whether to create byte-identical archives from identical contents: entries are sorted,
+   * zip entries get the timestamp ${xp.package.outputTimestamp} and normalized modes, and
+   * [META-INF/manifest.ini] contains no build machine or build time
+   *
+   * @parameter expression="${xp.package.reproducible}" default-value="false"
+   */
+  protected boolean reproducible;
+
+  /**
+   * Timestamp for reproducible archives, either as ISO 8601 date ("2012-01-01T00:00:00Z")
+   * or as seconds since epoch. If not set, 1980-01-01T00:00:00Z is used
+   *
+   * @parameter expression="${xp.package.outputTimestamp}" default-value="${project.build.outputTimestamp}"
+   */
+  protected String outputTimestamp;
+
+  /**
+   * Do not repackage if none of the packaged inputs changed since the artifact was created;
+   * the existing artifact is attached instead. The digest of these inputs is kept in
+   * "${project.build.directory}/{artifact}.package-stamp"
+   *
+   * @parameter expression="${xp.package.skipUpToDate}" default-value="true"
+   */
+  protected boolean skipUpToDate;
+
+  /**
+   * Update an existing XAR artifact in place: only entries whose contents changed are written
+   * (appended to the archive), the archive is rewritten only when entries were added or
+   * removed or when more than ${xp.package.maxDeadSpace} of it is unused. Ignored for zip
+   * artifacts and reproducible archives
+   *
+   * @parameter expression="${xp.package.incremental}" default-value="false"
+   */
+  protected boolean incremental;
+
+  /**
+   * Share of unused space (replaced contents) in incrementally updated XAR artifacts which
+   * triggers a rewrite
+   *
+   * @parameter expression="${xp.package.maxDeadSpace}" default-value="0.25"
+   */
+  protected double maxDeadSpace;
+
+  /**
+   * Number of threads to compress zip artifacts with. The archive does not depend on the
+   * number of threads
+   *
+   * @parameter expression="${xp.package.threads}" default-value="1"
+   */
+  protected int threads;
+
   /**
    * Get location of compiled files (.class.php) to include in the package
    *
@@ -158,8 +215,35 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
       return;
     }
 
+    // Check whether the existing artifact is up to date
+    StampFile stamp= this.getPackageStamp(outputFile);
+    if (null != stamp) {
+      if (outputFile.exists() && stamp.isUpToDate()) {
+        getLog().info("Package [" + outputFile + "] is up to date; not repackaging");
+        this.attachArtifact(outputFile);
+        return;
+      }
+      stamp.delete();
+    }
+
     // Load archiver
-    this.archiver= ArchiveUtils.getArchiver(outputFile);
+    if (this.reproducible) {
+      long time= this.getOutputTimestamp();
+      getLog().info("Reproducible       [yes, " + this.formatTimestamp(time) + "]");
+      this.archiver= ArchiveUtils.getReproducibleArchiver(outputFile, time, this.threads);
+    } else {
+      this.archiver= ArchiveUtils.getArchiver(outputFile, this.threads);
+    }
+    if (this.threads > 1 && format.equals("zip")) {
+      getLog().info("Threads            [" + this.threads + "]");
+    }
+
+    // Update XAR archive in place
+    boolean update= this.incremental && this.archiver instanceof XarArchiver && !this.reproducible;
+    if (update) {
+      getLog().info("Incremental        [yes, max. dead space " + this.maxDeadSpace + "]");
+      ((XarArchiver)this.archiver).setIncremental(true, this.maxDeadSpace);
+    }
 
     // Init [project.pth] entries
     this.pth= new PthFile();
@@ -193,7 +277,10 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
     // Save archive to output file
     try {
       getLog().debug(" - Creating archive [" + outputFile + "]");
-      outputFile.delete();
+      if (!update) {
+        outputFile.delete();
+        XarArchiver.getIndexFile(outputFile).delete();
+      }
       this.archiver.createArchive();
     } catch (Exception ex) {
       throw new MojoExecutionException(
@@ -201,7 +288,28 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
       );
     }
 
-    // Attach/set generated archive as project artifact
+    // Record inputs of the generated archive
+    if (null != stamp) {
+      try {
+        stamp.setComment(CREATED_BY_NOTICE);
+        stamp.dump();
+      } catch (IOException ex) {
+        getLog().warn("Cannot write [" + stamp.getFile() + "]: " + ex.getMessage());
+      }
+    }
+
+    this.attachArtifact(outputFile);
+  }
+
+  /**
+   * Attach/set generated archive as project artifact
+   *
+   * @param  java.io.File outputFile
+   * @return void
+   */
+  private void attachArtifact(File outputFile) {
+    String classifier = this.getClassifier();
+    String format     = this.getFormat();
     if (null != classifier) {
       this.projectHelper.attachArtifact(this.project, format, classifier, outputFile);
     } else {
@@ -212,6 +320,86 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
     }
   }
 
+  /**
+   * Calculate digest of everything that goes into the archive: packaging settings, manifest
+   * fields, classes, resources and application directories, and checksums of the included
+   * dependencies, XP-runtime artifacts and vendor libraries
+   *
+   * @param  java.io.File outputFile
+   * @return net.xp_forge.maven.plugins.xp.io.StampFile null if ${xp.package.skipUpToDate} is disabled
+   * @throws org.apache.maven.plugin.MojoExecutionException When inputs cannot be inspected
+   */
+  private StampFile getPackageStamp(File outputFile) throws MojoExecutionException {
+    if (!this.skipUpToDate) return null;
+
+    StampFile stamp = new StampFile(new File(outputFile.getParentFile(), outputFile.getName() + ".package-stamp"));
+    String strategy = this.getStrategy();
+    try {
+
+      // Settings and manifest fields
+      stamp.add("project", this.project.getId());
+      stamp.add("name", this.project.getName());
+      stamp.add("classifier", this.getClassifier());
+      stamp.add("format", this.getFormat());
+      stamp.add("strategy", strategy);
+      stamp.add("mainClass", this.getMainClass());
+      stamp.add("packDependencies", this.getPackDependencies());
+      stamp.add("packRuntime", this.getPackRuntime());
+      stamp.add("packVendorLibs", this.getPackVendorLibs());
+      stamp.add("reproducible", this.reproducible);
+      stamp.add("outputTimestamp", this.outputTimestamp);
+
+      // Classes
+      File classesDirectory= this.getClassesDirectory();
+      if (classesDirectory.exists()) stamp.addDirectory(classesDirectory);
+
+      // Resources
+      if (strategy.equals("lib")) {
+        File xslDir= new File(this.outputDirectory, "xsl");
+        if (xslDir.exists()) stamp.addDirectory(xslDir);
+      } else if (null != this.getAppDirectories()) {
+        for (File appDir : this.getAppDirectories()) {
+          if (appDir.exists()) stamp.addDirectory(appDir);
+        }
+      }
+
+      // Dependencies, in order, as this defines the [project.pth] order; checksums, as
+      // artifacts may be replaced keeping size and timestamp
+      if (this.getPackDependencies()) {
+        for (Artifact artifact : (Iterable<Artifact>)this.getArtifacts(false)) {
+          if (!artifact.getType().equals("xar")) continue;
+          stamp.add("dependency", artifact.getId());
+          stamp.addChecksum(artifact.getFile());
+        }
+      }
+
+      // XP-runtime
+      if (strategy.equals("app") && this.getPackRuntime()) {
+        for (String artifactId : new String[] { CORE_ARTIFACT_ID, TOOLS_ARTIFACT_ID }) {
+          Artifact artifact= this.findDependencyArtifact(XP_FRAMEWORK_GROUP_ID, artifactId);
+          if (null == artifact) continue;
+          stamp.add("runtime", artifact.getId());
+          stamp.addChecksum(artifact.getFile());
+        }
+      }
+
+      // Vendor libraries
+      if (strategy.equals("app") && this.getPackVendorLibs()) {
+        for (File directory : new File[] { this.vendorLibDir, new File(this.vendorLibDir, "patch") }) {
+          File[] files= directory.listFiles(new ExtensionFileFilter("xar"));
+          if (null == files) continue;
+          Arrays.sort(files);
+          for (File file : files) {
+            stamp.addChecksum(file);
+          }
+        }
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot calculate digest of package inputs", ex);
+    }
+    return stamp;
+  }
+
   /**
    * Returns the output file, based on finalName, classifier and format
    *
@@ -526,8 +714,12 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
 
     // Set archive properties
     ini.setProperty("archive", "generator", "xp-maven-plugin");
-    ini.setProperty("archive", "created-by", this.getMachineInfo());
-    ini.setProperty("archive", "created-on", this.getCurrentTimestamp());
+    if (this.reproducible) {
+      ini.setProperty("archive", "created-on", this.formatTimestamp(this.getOutputTimestamp()));
+    } else {
+      ini.setProperty("archive", "created-by", this.getMachineInfo());
+      ini.setProperty("archive", "created-on", this.getCurrentTimestamp());
+    }
     ini.setProperty("archive", "format", this.getFormat());
     ini.setProperty("archive", "strategy", this.getStrategy());
 
@@ -554,9 +746,49 @@ public abstract class AbstractPackageMojo extends AbstractXpMojo {
    * @return java.lang.String
    */
   private String getCurrentTimestamp() {
-    SimpleDateFormat sdf= new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
+    return this.formatTimestamp(System.currentTimeMillis());
+  }
+
+  /**
+   * Format timestamp for [manifest.ini]
+   *
+   * @param  long time Milliseconds since epoch
+   * @return java.lang.String
+   */
+  private String formatTimestamp(long time) {
+    SimpleDateFormat sdf= new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z", Locale.US);
     sdf.setTimeZone(TimeZone.getTimeZone("GMT"));
-    return sdf.format(new Date());
+    return sdf.format(new Date(time));
+  }
+
+  /**
+   * Get timestamp for reproducible archives from ${xp.package.outputTimestamp}
+   *
+   * @return long Milliseconds since epoch
+   * @throws org.apache.maven.plugin.MojoExecutionException When the timestamp cannot be parsed
+   */
+  private long getOutputTimestamp() throws MojoExecutionException {
+    String value= null == this.outputTimestamp ? "" : this.outputTimestamp.trim();
+
+    // Not set (or property not defined)
+    if (0 == value.length() || value.startsWith("${")) {
+      return ZipWriter.DOS_EPOCH;
+    }
+
+    // Seconds since epoch
+    if (value.matches("\\d+")) {
+      return Long.parseLong(value) * 1000L;
+    }
+
+    // ISO 8601, with "Z" or offset
+    String date= value.replaceFirst("Z$", "+0000").replaceFirst("([+-]\\d{2}):(\\d{2})$", "$1$2");
+    SimpleDateFormat sdf= new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ", Locale.US);
+    sdf.setLenient(false);
+    try {
+      return sdf.parse(date).getTime();
+    } catch (ParseException ex) {
+      throw new MojoExecutionException("${xp.package.outputTimestamp} has an invalid value [" + value + "]; expecting e.g. 2012-01-01T00:00:00Z", ex);
+    }
   }
 
   /**
@@ -7,21 +7,68 @@
 package net.xp_forge.maven.plugins.xp;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Set;
 import java.util.List;
+import java.util.Locale;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
 
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugin.MojoExecutionException;
 
 import net.xp_forge.maven.plugins.xp.exec.RunnerException;
+import net.xp_forge.maven.plugins.xp.exec.runners.git.GitRunner;
 import net.xp_forge.maven.plugins.xp.exec.runners.xp.UnittestRunner;
+import net.xp_forge.maven.plugins.xp.exec.input.git.GitRunnerInput;
 import net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput;
 import net.xp_forge.maven.plugins.xp.filter.ExtensionFileFilter;
+import net.xp_forge.maven.plugins.xp.io.StampFile;
+import net.xp_forge.maven.plugins.xp.io.DependencyGraph;
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex;
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint;
+import net.xp_forge.maven.plugins.xp.io.TestHistoryFile;
+import net.xp_forge.maven.plugins.xp.report.TestResults;
+import net.xp_forge.maven.plugins.xp.report.TestSuiteResult;
+import net.xp_forge.maven.plugins.xp.report.UnittestOutputParser;
+import net.xp_forge.maven.plugins.xp.logging.BufferedLog;
+import net.xp_forge.maven.plugins.xp.util.ExecuteUtils;
+import net.xp_forge.maven.plugins.xp.util.FileUtils;
 
 /**
  * Wrapper around the XP-Framework "UnittestRunner" runner
  *
  */
 public abstract class AbstractTestMojo extends AbstractXpMojo {
+  private static final Pattern TEST_CLASS= Pattern.compile("^\\s*class\\s*=\\s*[\"']?([\\w.]+)");
+
+  private TestResults results;
+  private TestHistoryFile history;
+  private Map<File, StampFile> stamps;
+  private Set<UnittestRunner> runners= Collections.synchronizedSet(new HashSet<UnittestRunner>());
+  private volatile boolean cancelled= false;
+  private long deadline= 0L;
 
   /**
    * Whether to skip running tests
@@ -65,6 +112,108 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
    */
   protected abstract boolean isSingleInstance();
 
+  /**
+   * Number of unittest runners to execute concurrently (one per [*.ini] file)
+   *
+   * @return int
+   */
+  protected abstract int getForkCount();
+
+  /**
+   * Location of the test history file, where the duration and flakiness of each [*.ini] file
+   * run is kept
+   *
+   * @return java.io.File
+   */
+  protected abstract File getHistoryFile();
+
+  /**
+   * Shard of the [*.ini] files to run on this node, as "index/total" (e.g. "3/8"); null to
+   * run all of them
+   *
+   * @return java.lang.String
+   */
+  protected abstract String getShard();
+
+  /**
+   * Location of the test history used to balance shards by duration; it is only read
+   *
+   * @return java.io.File null to distribute [*.ini] files round-robin in order of their path
+   */
+  protected abstract File getShardHistoryFile();
+
+  /**
+   * Directory where Surefire XML reports and a JSON summary of the test results are written
+   *
+   * @return java.io.File
+   */
+  protected abstract File getReportsDirectory();
+
+  /**
+   * Whether to skip [*.ini] files that passed before and whose inputs did not change since
+   *
+   * @return boolean
+   */
+  protected abstract boolean isCache();
+
+  /**
+   * Whether to run all [*.ini] files, even if cached results say they passed before
+   *
+   * @return boolean
+   */
+  protected abstract boolean isForceRun();
+
+  /**
+   * Whether to stop running tests as soon as tests from one [*.ini] file failed, killing
+   * concurrently running runners
+   *
+   * @return boolean
+   */
+  protected abstract boolean isFailFast();
+
+  /**
+   * Timeout in seconds for running tests from one [*.ini] file; 0 for none
+   *
+   * @return int
+   */
+  protected abstract int getTimeout();
+
+  /**
+   * Timeout in seconds for running all tests; 0 for none
+   *
+   * @return int
+   */
+  protected abstract int getRunTimeout();
+
+  /**
+   * How many times to re-run tests from an [*.ini] file that failed; 0 for no retries
+   *
+   * @return int
+   */
+  protected abstract int getRetries();
+
+  /**
+   * Whether to run only [*.ini] files whose test classes are impacted by changed sources
+   *
+   * @return boolean
+   */
+  protected abstract boolean isImpactedOnly();
+
+  /**
+   * Git revision to compare against for ${xp.test.impacted-only}; null to compare against the
+   * last successful run
+   *
+   * @return java.lang.String
+   */
+  protected abstract String getImpactedSince();
+
+  /**
+   * Source directories ([*.xp] and [*.class.php] files) of the classes under test and the tests
+   *
+   * @return java.util.List<java.io.File>
+   */
+  protected abstract List<File> getSourceDirectories();
+
   /**
    * {@inheritDoc}
    *
@@ -79,6 +228,11 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
       return;
     }
 
+    // Deadline for the whole run
+    if (this.getRunTimeout() > 0) {
+      this.deadline= System.currentTimeMillis() + this.getRunTimeout() * 1000L;
+    }
+
     File iniDirectory                   = this.getIniDirectory();
     List<File> additionalIniDirectories = this.getAdditionalIniDirectories();
     File classesDirectory               = this.getClassesDirectory();
@@ -96,7 +250,7 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
     UnittestRunnerInput input= new UnittestRunnerInput();
 
     // Add dependency classpaths
-    input.addClasspath(this.getArtifacts(false));
+    input.addClasspath(this.getDependencyClasspath());
 
     // Add vendor libs
     File[] files= this.vendorLibDir.listFiles(new ExtensionFileFilter("xar"));
@@ -143,6 +297,33 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
       }
     }
 
+    // Durations and outcomes of previous runs
+    TestHistoryFile history= this.getTestHistory();
+    this.history= history;
+
+    // Select this node's shard
+    String shard= this.getShard();
+    if (null != shard && 0 != shard.trim().length() && !input.inifiles.isEmpty()) {
+      int[] spec= this.parseShard(shard);
+      int found = input.inifiles.size();
+
+      // Balance by durations only from a history nobody writes to while shards run; a history
+      // written by the nodes themselves would differ between them
+      TestHistoryFile shardHistory= this.getShardHistory();
+      if (null == shardHistory) {
+        input.inifiles= history.selectShardByKey(input.inifiles, spec[0] - 1, spec[1]);
+      } else {
+        input.inifiles= shardHistory.selectShard(input.inifiles, spec[0] - 1, spec[1]);
+      }
+      getLog().info("Running shard [" + spec[0] + "/" + spec[1] + "]: " + input.inifiles.size() + " of " + found + " ini file(s)");
+      if (input.inifiles.isEmpty()) {
+        getLog().info("Shard [" + spec[0] + "/" + spec[1] + "] has nothing to run: there are fewer ini files than shards");
+      }
+      for (File iniFile : input.inifiles) {
+        getLog().debug("- " + iniFile);
+      }
+    }
+
     // Check no tests to run
     if (0 == input.inifiles.size()) {
       getLog().info("There are no tests to run");
@@ -150,21 +331,598 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
       return;
     }
 
+    // Only run *.ini files impacted by changes
+    FingerprintIndex impactIndex= null;
+    if (this.isImpactedOnly()) {
+      impactIndex= new FingerprintIndex();
+      int found  = input.inifiles.size();
+
+      input.inifiles= this.getImpactedInifiles(input.inifiles, impactIndex);
+      getLog().info("Running [" + input.inifiles.size() + "] of [" + found + "] ini file(s) impacted by changes");
+      if (0 == input.inifiles.size()) {
+        this.saveImpactIndex(impactIndex);
+        getLog().info(LINE_SEPARATOR);
+        return;
+      }
+    }
+
+    // Skip *.ini files that passed before with the same inputs
+    this.stamps= this.getTestStamps(input, history);
+    if (null != this.stamps && !this.isForceRun()) {
+      int found= input.inifiles.size();
+      for (Iterator<File> i= input.inifiles.iterator(); i.hasNext(); ) {
+        File iniFile= i.next();
+        if (this.stamps.get(iniFile).isUpToDate()) {
+          getLog().info("Tests from [" + iniFile + "] passed before and are up to date; not running");
+          i.remove();
+        }
+      }
+
+      if (0 == input.inifiles.size()) {
+        getLog().info("All tests from [" + found + "] ini file(s) are up to date; not running tests");
+        getLog().info(LINE_SEPARATOR);
+        this.saveImpactIndex(impactIndex);
+        return;
+      }
+    }
+
     // Execute all *.ini files together
-    if (true == singleInstance || 1 == input.inifiles.size()) {
-      this.executeUnittestRunner(input);
+    boolean together = true == singleInstance || 1 == input.inifiles.size();
+    this.results     = new TestResults();
+    try {
+      if (together) {
+        long start= System.currentTimeMillis();
+        try {
+          this.executeUnittestRunner(input);
+        } finally {
+
+          // A single *.ini file: its duration is known, as on the other paths
+          if (1 == input.inifiles.size() && !this.cancelled) {
+            history.setDuration(input.inifiles.get(0), System.currentTimeMillis() - start);
+          }
+        }
+
+      // Spawn a unittest runner for each *.ini file, several at a time
+      } else if (this.getForkCount() > 1) {
+        this.executeUnittestForks(input, this.getForkCount(), history);
+
+      // Spawn a unittest runner for each *.ini file
+      } else {
+        for (File iniFile : input.inifiles) {
+          getLog().info("Running tests from [" + iniFile + "]");
+
+          // Prepare new input
+          UnittestRunnerInput singleIniInput= input.clone();
+          singleIniInput.addInifile(iniFile);
+
+          // Execute runner
+          long start= System.currentTimeMillis();
+          try {
+            this.executeUnittestRunner(singleIniInput);
+          } finally {
+            history.setDuration(iniFile, System.currentTimeMillis() - start);
+          }
+        }
+      }
+
+      // All tests passed; record sources for the next ${xp.test.impacted-only} run
+      this.saveImpactIndex(impactIndex);
+    } finally {
+      this.writeTestReports();
+      if (!together || 1 == input.inifiles.size()) this.saveTestHistory(history);
+    }
+  }
+
+  /**
+   * Write Surefire XML reports and JSON summary of all unittest runs
+   *
+   * @return void
+   */
+  private void writeTestReports() {
+    if (null == this.results || this.results.isEmpty()) return;
+
+    File reportsDirectory= this.getReportsDirectory();
+    try {
+      this.results.dump(reportsDirectory);
+      getLog().debug("Test reports [" + reportsDirectory + "]");
+    } catch (IOException ex) {
+      getLog().warn("Cannot write test reports to [" + reportsDirectory + "]: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Select the [*.ini] files impacted by changes since the last successful run (or, if
+   * ${xp.test.impacted-since} is set, since the specified git revision)
+   *
+   * Each [*.ini] file is mapped to the test classes it names ("class=" lines), which are mapped
+   * to their sources; a [*.ini] file is impacted if it changed itself or if any of its test
+   * sources changed or depends, directly or transitively, on a changed source. Any other
+   * change inside "src" or to "pom.xml" (resources, removed sources, dependencies) impacts all
+   * [*.ini] files, as do test classes whose sources cannot be found
+   *
+   * @param  java.util.List<java.io.File> iniFiles
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex index Filled with the current sources
+   * @return java.util.List<java.io.File>
+   * @throws org.apache.maven.plugin.MojoExecutionException When sources cannot be inspected
+   */
+  private List<File> getImpactedInifiles(List<File> iniFiles, FingerprintIndex index) throws MojoExecutionException {
+    String since= this.getImpactedSince();
+    try {
+
+      // Files that may impact tests: sources, everything else in "src", pom.xml and the *.ini files
+      Set<File> tracked= new HashSet<File>(FileUtils.listFiles(new File(this.basedir, "src"), null));
+      for (File sourceDirectory : this.getSourceDirectories()) {
+        tracked.addAll(FileUtils.listFiles(sourceDirectory, null));
+      }
+      tracked.addAll(iniFiles);
+      File pomFile= new File(this.basedir, "pom.xml");
+      if (pomFile.exists()) tracked.add(pomFile);
+
+      // Changed files
+      Set<File> changed;
+      if (null != since && 0 != since.trim().length()) {
+        changed= this.getChangedSince(since.trim(), tracked);
+        this.updateImpactIndex(index, tracked, null);
+      } else {
+        FingerprintIndex previous = new FingerprintIndex();
+        File indexFile            = this.getImpactIndexFile();
+        try {
+          previous.load(indexFile);
+        } catch (IOException ex) {
+          previous.clear();
+        }
+        changed= this.updateImpactIndex(index, tracked, previous);
+
+        if (previous.paths().isEmpty()) {
+          getLog().info("No record of a previous successful run [" + indexFile + "]; running all tests");
+          return iniFiles;
+        }
+      }
+
+      if (changed.isEmpty()) {
+        getLog().info("No changes since " + (null == since ? "last successful run" : "[" + since + "]"));
+        return new ArrayList<File>();
+      }
+
+      // Classify changes
+      Set<File> iniSet              = new HashSet<File>(iniFiles);
+      List<String> changedSources   = new ArrayList<String>();
+      DependencyGraph graph         = new DependencyGraph();
+      for (File sourceDirectory : this.getSourceDirectories()) {
+        for (String extension : new String[] { "xp", "class.php" }) {
+          for (File source : FileUtils.listFiles(sourceDirectory, new ExtensionFileFilter(extension))) {
+            graph.add(source, sourceDirectory);
+          }
+        }
+      }
+      for (File file : changed) {
+        if (iniSet.contains(file)) continue;
+
+        if (graph.contains(file.getAbsolutePath())) {
+          getLog().debug("Changed source [" + file + "]");
+          changedSources.add(file.getAbsolutePath());
+        } else {
+          getLog().info("Changed [" + file + "] may affect all tests; running all tests");
+          return iniFiles;
+        }
+      }
+
+      // Impacted sources: changed ones and their dependents
+      Set<String> impacted= new HashSet<String>(changedSources);
+      impacted.addAll(graph.getDependents(changedSources));
+
+      // Select *.ini files
+      List<File> retVal= new ArrayList<File>();
+      for (File iniFile : iniFiles) {
+        String reason= null;
+        if (changed.contains(iniFile)) {
+          reason= "ini file changed";
+        } else {
+          List<String> testClasses= this.getTestClasses(iniFile);
+          if (testClasses.isEmpty()) reason= "no test classes found";
+          for (String testClass : testClasses) {
+            String path= graph.getPath(testClass);
+            if (null == path) {
+              reason= "source of [" + testClass + "] not found";
+              break;
+            } else if (impacted.contains(path)) {
+              reason= "[" + testClass + "] impacted";
+              break;
+            }
+          }
+        }
+
+        if (null == reason) {
+          getLog().debug("Not impacted [" + iniFile + "]");
+        } else {
+          getLog().info("Impacted [" + iniFile + "]: " + reason);
+          retVal.add(iniFile);
+        }
+      }
+      return retVal;
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot inspect sources for changes", ex);
+    }
+  }
+
+  /**
+   * Fill index with fingerprints of the tracked files and return the files that changed
+   * compared to the previous index
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex index
+   * @param  java.util.Set<java.io.File> tracked
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex previous null to only fill the index
+   * @return java.util.Set<java.io.File> Changed, added and removed files
+   * @throws java.io.IOException
+   */
+  private Set<File> updateImpactIndex(FingerprintIndex index, Set<File> tracked, FingerprintIndex previous) throws IOException {
+    Set<File> changed= new HashSet<File>();
+    for (File file : tracked) {
+      Fingerprint before      = null == previous ? null : previous.get(file.getAbsolutePath());
+      Fingerprint fingerprint = new Fingerprint(file);
+
+      // Keep checksum if size and timestamp are unchanged, else compare contents
+      if (null != before && before.matches(file)) {
+        fingerprint.checksum= before.checksum;
+      } else {
+        fingerprint.checksum= FileUtils.getChecksum(file);
+        if (null == before || !fingerprint.checksum.equals(before.checksum)) changed.add(file);
+      }
+      index.put(fingerprint);
+    }
+
+    // Removed files
+    if (null != previous) {
+      for (String path : previous.paths()) {
+        if (null == index.get(path)) changed.add(new File(path));
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Get files changed since the specified git revision (committed, staged, unstaged and
+   * untracked), restricted to tracked files and removed files inside "src"
+   *
+   * @param  java.lang.String since Git revision
+   * @param  java.util.Set<java.io.File> tracked
+   * @return java.util.Set<java.io.File>
+   * @throws org.apache.maven.plugin.MojoExecutionException When git fails
+   */
+  private Set<File> getChangedSince(String since, Set<File> tracked) throws MojoExecutionException {
+    File executable;
+    try {
+      executable= ExecuteUtils.getExecutable("git");
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot find [git] executable for ${xp.test.impacted-since}", ex);
+    }
+
+    // Paths are relative to ${basedir}
+    List<String> paths= new ArrayList<String>();
+    for (String[] command : new String[][] {
+      { "diff", "--name-only", "--relative", since },
+      { "ls-files", "--others", "--exclude-standard" }
+    }) {
+      GitRunnerInput input= new GitRunnerInput(command[0]);
+      input.addArguments(Arrays.asList(command).subList(1, command.length));
 
-    // Spawn a unittest runner for each *.ini file
-    } else {
+      GitRunner runner= new GitRunner(executable, input);
+      runner.setLog(getLog());
+      runner.setWorkingDirectory(this.basedir);
+      try {
+        runner.execute();
+      } catch (RunnerException ex) {
+        throw new MojoExecutionException("Execution of [git " + command[0] + "] failed: " + runner.getOutput().asString(), ex);
+      }
+      paths.addAll(runner.getOutput().getLines());
+    }
+
+    File srcDirectory = new File(this.basedir, "src");
+    Set<File> changed = new HashSet<File>();
+    for (String path : paths) {
+      if (0 == path.trim().length()) continue;
+
+      File file= new File(this.basedir, path.trim()).getAbsoluteFile();
+      if (tracked.contains(file) || (!file.exists() && null != FileUtils.getRelativePath(file, srcDirectory))) {
+        changed.add(file);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Get test classes named in the specified [*.ini] file
+   *
+   * @param  java.io.File iniFile
+   * @return java.util.List<java.lang.String>
+   * @throws java.io.IOException
+   */
+  private List<String> getTestClasses(File iniFile) throws IOException {
+    List<String> retVal = new ArrayList<String>();
+    BufferedReader in   = new BufferedReader(new InputStreamReader(new FileInputStream(iniFile), "UTF-8"));
+    try {
+      String line;
+      while (null != (line= in.readLine())) {
+        Matcher matcher= TEST_CLASS.matcher(line);
+        if (matcher.find()) retVal.add(matcher.group(1));
+      }
+    } finally {
+      in.close();
+    }
+    return retVal;
+  }
+
+  /**
+   * Index of the sources of the last successful ${xp.test.impacted-only} run
+   *
+   * @return java.io.File
+   */
+  private File getImpactIndexFile() {
+    return new File(this.outputDirectory, ".unittest-impact" + File.separator + this.getTestClassesDirectory().getName() + ".index");
+  }
+
+  /**
+   * Record sources of a successful run
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex index null if not running impacted tests only
+   * @return void
+   */
+  private void saveImpactIndex(FingerprintIndex index) {
+    if (null == index) return;
+
+    File indexFile= this.getImpactIndexFile();
+    try {
+      index.setComment(CREATED_BY_NOTICE);
+      index.dump(indexFile);
+    } catch (IOException ex) {
+      getLog().warn("Cannot write [" + indexFile + "]: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Calculate test stamps, one per [*.ini] file, kept in "${project.build.directory}/.unittest-cache/{test-classes}".
+   * Each covers the [*.ini] file contents and the inputs shared by all [*.ini] files: XP runtime (runner
+   * scripts, [xp.ini] and USE_XP contents, PHP executable), runner arguments, classpath directories (classes, test classes, ...) and checksums of all xars on the
+   * classpath (dependencies and vendor libs)
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
+   * @param  net.xp_forge.maven.plugins.xp.io.TestHistoryFile history Used to get keys for [*.ini] files
+   * @return java.util.Map<java.io.File, net.xp_forge.maven.plugins.xp.io.StampFile> null if test cache is disabled
+   * @throws org.apache.maven.plugin.MojoExecutionException When inputs cannot be inspected
+   */
+  private Map<File, StampFile> getTestStamps(UnittestRunnerInput input, TestHistoryFile history) throws MojoExecutionException {
+    if (!this.isCache()) return null;
+
+    File cacheDirectory         = new File(this.outputDirectory, ".unittest-cache" + File.separator + this.getTestClassesDirectory().getName());
+    Map<File, StampFile> retVal = new HashMap<File, StampFile>();
+    try {
+
+      // Shared inputs; digested once for all *.ini files
+      StampFile shared= new StampFile(null);
+      this.addRuntimeToStamp(shared);
+      shared.add("arguments", input.arguments);
+      for (String path : input.classpaths) {
+        File file= new File(path.startsWith("!") ? path.substring(1) : path);
+        shared.add("classpath", path);
+        if (file.isDirectory()) {
+          shared.addDirectory(file);
+        } else {
+          shared.addChecksum(file);
+        }
+      }
+      String digest= shared.getDigest();
+
+      // One stamp per *.ini file
       for (File iniFile : input.inifiles) {
-        getLog().info("Running tests from [" + iniFile + "]");
+        StampFile stamp= new StampFile(new File(cacheDirectory, history.getKey(iniFile).replaceAll("[^\\w.-]", "_") + ".stamp"));
+        stamp.add("shared", digest);
+        stamp.addChecksum(iniFile);
+        retVal.put(iniFile, stamp);
+      }
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot inspect test inputs", ex);
+    }
+    return retVal;
+  }
+
+  /**
+   * Parse shard specification "index/total"; index is 1-based
+   *
+   * @param  java.lang.String shard
+   * @return int[] index and total
+   * @throws org.apache.maven.plugin.MojoExecutionException When the specification is invalid
+   */
+  protected int[] parseShard(String shard) throws MojoExecutionException {
+    String[] parts= shard.trim().split("/");
+    try {
+      if (2 == parts.length) {
+        int index = Integer.parseInt(parts[0].trim());
+        int total = Integer.parseInt(parts[1].trim());
+        if (total > 0 && index > 0 && index <= total) return new int[] { index, total };
+      }
+    } catch (NumberFormatException ex) {
+      // Fall through
+    }
+    throw new MojoExecutionException("Invalid shard [" + shard + "], expecting \"index/total\", e.g. \"3/8\"");
+  }
+
+  /**
+   * Load test history; an unreadable history file is ignored
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.TestHistoryFile
+   */
+  protected TestHistoryFile getTestHistory() {
+    TestHistoryFile history= new TestHistoryFile(this.getHistoryFile(), this.basedir);
+    try {
+      history.load();
+    } catch (IOException ex) {
+      getLog().warn("Cannot read test history [" + history.getFile() + "]; ignoring", ex);
+    }
+    return history;
+  }
+
+  /**
+   * Load the test history used to balance shards, if configured. It must not be the test
+   * history file, which is written while tests run
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.TestHistoryFile null if not configured
+   * @throws org.apache.maven.plugin.MojoExecutionException When it is the test history file or cannot be read
+   */
+  protected TestHistoryFile getShardHistory() throws MojoExecutionException {
+    File file= this.getShardHistoryFile();
+    if (null == file) return null;
+
+    TestHistoryFile shardHistory= new TestHistoryFile(file, this.basedir);
+    try {
+      if (file.getCanonicalFile().equals(this.getHistoryFile().getCanonicalFile())) {
+        throw new MojoExecutionException("Shard history [" + file + "] must not be the test history file, which is written while tests run");
+      }
+      shardHistory.load();
+    } catch (IOException ex) {
+      throw new MojoExecutionException("Cannot read shard history [" + file + "]", ex);
+    }
+    getLog().debug("Balancing shards using [" + file + "]");
+    return shardHistory;
+  }
+
+  /**
+   * Save test history; failures are only logged, as they must not affect the build
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.TestHistoryFile history
+   * @return void
+   */
+  protected void saveTestHistory(TestHistoryFile history) {
+    getLog().debug("Saving test history [" + history.getFile() + "]");
+    try {
+      history.dump("Test history for " + this.project.getId());
+    } catch (IOException ex) {
+      getLog().warn("Cannot write test history [" + history.getFile() + "]", ex);
+    }
+  }
+
+  /**
+   * Execute unittests, one runner per [*.ini] file, using the specified number of concurrent
+   * runners. Each fork gets its own working directory (and thus its own [project.pth]) in
+   * "${project.build.directory}/.unittest/fork-N"; runner output is buffered and logged as a
+   * whole once the runner has finished
+   *
+   * The [*.ini] files are submitted longest first according to the test history, so each idle
+   * fork picks up the longest remaining one and the forks finish at about the same time
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
+   * @param  int forkCount
+   * @param  net.xp_forge.maven.plugins.xp.io.TestHistoryFile history
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException When tests from any [*.ini] file failed
+   */
+  protected void executeUnittestForks(UnittestRunnerInput input, int forkCount, final TestHistoryFile history) throws MojoExecutionException {
+    int forks= Math.min(forkCount, input.inifiles.size());
+    getLog().info("Running tests from [" + input.inifiles.size() + "] ini files using [" + forks + "] forks");
+
+    // Fork working directories; a runner takes one while running and returns it afterwards
+    final BlockingQueue<File> sandboxes= new ArrayBlockingQueue<File>(forks);
+    for (int i= 0; i < forks; i++) {
+      sandboxes.add(new File(this.outputDirectory, ".unittest" + File.separator + "fork-" + i));
+    }
 
-        // Prepare new input
-        UnittestRunnerInput singleIniInput= input.clone();
+    // Submit one runner per *.ini file
+    Map<Future<?>, File> futures       = new LinkedHashMap<Future<?>, File>();
+    ExecutorService pool               = Executors.newFixedThreadPool(forks);
+    CompletionService<Object> finished = new ExecutorCompletionService<Object>(pool);
+    try {
+      for (final File iniFile : history.sortLongestFirst(input.inifiles)) {
+        final UnittestRunnerInput singleIniInput= input.clone();
         singleIniInput.addInifile(iniFile);
 
-        // Execute runner
-        this.executeUnittestRunner(singleIniInput);
+        futures.put(finished.submit(new Callable<Object>() {
+          public Object call() throws Exception {
+            File sandbox    = sandboxes.take();
+            BufferedLog log = new BufferedLog(getLog());
+            long start      = System.currentTimeMillis();
+            try {
+              if (cancelled) throw new CancellationException("Not started");
+
+              log.info("Running tests from [" + iniFile + "] in [" + sandbox + "]");
+              executeUnittestRunner(singleIniInput, sandbox, log);
+              return null;
+            } finally {
+              if (!cancelled) history.setDuration(iniFile, System.currentTimeMillis() - start);
+              synchronized (AbstractTestMojo.this) {
+                log.flush();
+              }
+              sandboxes.put(sandbox);
+            }
+          }
+        }), iniFile);
+      }
+
+      // Wait for all runners to finish, in the order they finish
+      List<File> failed  = new ArrayList<File>();
+      List<File> killed  = new ArrayList<File>();
+      List<File> skipped = new ArrayList<File>();
+      for (int i= 0; i < futures.size(); i++) {
+        Future<?> future;
+        try {
+          future= finished.take();
+        } catch (InterruptedException ex) {
+          this.cancelUnittestRunners();
+          throw new MojoExecutionException("Interrupted while waiting for [unittest] runners", ex);
+        }
+
+        File iniFile= futures.get(future);
+        try {
+          future.get();
+        } catch (ExecutionException ex) {
+          if (ex.getCause() instanceof CancellationException) {
+            skipped.add(iniFile);
+          } else if (this.cancelled) {
+            killed.add(iniFile);
+          } else {
+            getLog().debug("Tests from [" + iniFile + "] failed", ex.getCause());
+            failed.add(iniFile);
+
+            // Fail fast: kill running runners, do not start queued ones
+            if (this.isFailFast()) {
+              getLog().error("Tests from [" + iniFile + "] failed; cancelling remaining [unittest] runners");
+              this.cancelUnittestRunners();
+            }
+          }
+        } catch (InterruptedException ex) {
+          this.cancelUnittestRunners();
+          throw new MojoExecutionException("Interrupted while waiting for [unittest] runners", ex);
+        }
+      }
+
+      // Summary of what was cancelled
+      if (!killed.isEmpty() || !skipped.isEmpty()) {
+        getLog().warn("Fail fast: [" + killed.size() + "] ini file(s) killed while running, [" + skipped.size() + "] not started");
+        for (File iniFile : killed) {
+          getLog().warn("- Killed      [" + iniFile + "]");
+        }
+        for (File iniFile : skipped) {
+          getLog().warn("- Not started [" + iniFile + "]");
+        }
+      }
+
+      if (!failed.isEmpty()) {
+        throw new MojoExecutionException("Execution of [unittest] runner failed for " + failed.size() + " of " + futures.size() + " ini file(s): " + failed);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * Stop running tests: kill all running [unittest] runners; runners not yet started will
+   * not start
+   *
+   * @return void
+   */
+  protected void cancelUnittestRunners() {
+    this.cancelled= true;
+    synchronized (this.runners) {
+      for (UnittestRunner runner : this.runners) {
+        runner.destroy();
       }
     }
   }
@@ -172,30 +930,162 @@ public abstract class AbstractTestMojo extends AbstractXpMojo {
   /**
    * Execute unittests
    *
-   * @param 
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
    * @return void
    * @throws org.apache.maven.plugin.MojoExecutionException
    */
   protected void executeUnittestRunner(UnittestRunnerInput input) throws MojoExecutionException {
+    this.executeUnittestRunner(input, this.outputDirectory, getLog());
+  }
+
+  /**
+   * Execute unittests
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
+   * @param  java.io.File workingDirectory Runner working directory (where [project.pth] is written)
+   * @param  org.apache.maven.plugin.logging.Log log
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException
+   */
+  protected void executeUnittestRunner(UnittestRunnerInput input, File workingDirectory, Log log) throws MojoExecutionException {
+    String name= "unittest";
+    if (1 == input.inifiles.size()) {
+      name= input.inifiles.get(0).getName().replaceFirst("\\.ini$", "");
+    }
+
+    // Run, retrying failed tests up to ${xp.test.retries} times
+    TestSuiteResult suite= null;
+    int retries= this.getRetries();
+    try {
+      for (int attempt= 0; ; attempt++) {
+        TestSuiteResult previous= suite;
+        suite= new TestSuiteResult(name);
+        if (null != previous) suite.addRerun(previous);
+
+        try {
+          this.executeUnittestAttempt(input, workingDirectory, log, suite);
+          break;
+        } catch (MojoExecutionException ex) {
+          boolean expired= this.deadline > 0 && System.currentTimeMillis() >= this.deadline;
+          if (attempt >= retries || this.cancelled || expired || !suite.isRetryable()) {
+            this.recordOutcome(input, suite);
+            throw ex;
+          }
+          log.warn("Tests from " + input.inifiles + " failed; retrying (attempt " + (attempt + 2) + " of " + (retries + 1) + ")");
+        }
+      }
+
+      // Passed, possibly after retries
+      this.recordOutcome(input, suite);
+      if (suite.isFlaky()) {
+        log.warn("Tests from " + input.inifiles + " passed on attempt " + suite.attempts + " of " + (retries + 1) + "; flaky tests: " + suite.reruns.size());
+      }
+    } finally {
+      if (null != this.results && null != suite) this.results.add(suite);
+    }
+  }
+
+  /**
+   * Record outcome of running tests from a single [*.ini] file in the test history
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult suite Result of the last attempt
+   * @return void
+   */
+  private void recordOutcome(UnittestRunnerInput input, TestSuiteResult suite) {
+    if (null == this.history || 1 != input.inifiles.size() || this.cancelled) return;
+
+    File iniFile= input.inifiles.get(0);
+    this.history.addRun(iniFile, !suite.isFailed(), suite.attempts > 1);
+    if (suite.isFlaky()) {
+      getLog().debug("Flakiness of [" + iniFile + "] is now [" + String.format(Locale.US, "%.3f", this.history.getFlakiness(iniFile)) + "]");
+    }
+  }
+
+  /**
+   * Execute unittests once
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.UnittestRunnerInput input
+   * @param  java.io.File workingDirectory Runner working directory (where [project.pth] is written)
+   * @param  org.apache.maven.plugin.logging.Log log
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult suite Where results are added
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException
+   */
+  private void executeUnittestAttempt(UnittestRunnerInput input, File workingDirectory, Log log, TestSuiteResult suite) throws MojoExecutionException {
 
     // Configure [unittest] runner
     File executable= new File(this.runnersDirectory, "unittest");
     UnittestRunner runner= new UnittestRunner(executable, input);
-    runner.setLog(getLog());
+    runner.setLog(log);
 
-    // Set runner working directory to [/target]
-    runner.setWorkingDirectory(this.outputDirectory);
+    // Set runner working directory
+    runner.setWorkingDirectory(workingDirectory);
 
     // Set USE_XP environment variable
     if (null != this.use_xp) {
       runner.setEnvironmentVariable("USE_XP", this.use_xp);
     }
 
+    // Collect structured results
+    UnittestOutputParser parser= new UnittestOutputParser(suite);
+    runner.addOutputListener(parser);
+
+    // Kill runner after timeout; the run's deadline takes precedence if it comes earlier
+    long timeout= this.getTimeout() * 1000L;
+    if (this.deadline > 0) {
+      long remaining= this.deadline - System.currentTimeMillis();
+      if (remaining <= 0) {
+        throw new MojoExecutionException("Not running tests from " + input.inifiles + ": run timeout of [" + this.getRunTimeout() + "] seconds exceeded");
+      }
+      if (0 == timeout || remaining < timeout) timeout= remaining;
+    }
+    runner.setTimeout(timeout);
+
+    // Forget cached results; recorded again if the tests pass
+    List<StampFile> runStamps= new ArrayList<StampFile>();
+    if (null != this.stamps) {
+      for (File iniFile : input.inifiles) {
+        StampFile stamp= this.stamps.get(iniFile);
+        if (null == stamp) continue;
+        stamp.delete();
+        runStamps.add(stamp);
+      }
+    }
+
+    // Register runner, so it can be killed by cancelUnittestRunners()
+    this.runners.add(runner);
+    if (this.cancelled) runner.destroy();
+
     // Execute runner
+    long start      = System.currentTimeMillis();
+    Throwable error = null;
     try {
       runner.execute();
+
+      // Record passing run
+      for (StampFile stamp : runStamps) {
+        try {
+          stamp.setComment(CREATED_BY_NOTICE);
+          stamp.dump();
+        } catch (IOException ex) {
+          log.warn("Cannot write [" + stamp.getFile() + "]: " + ex.getMessage());
+        }
+      }
     } catch (RunnerException ex) {
+      error= ex;
+
+      // Killed by timeout: tell where it hung
+      if (runner.isTimedOut()) {
+        log.error("Tests from " + input.inifiles + " timed out after [" + (timeout / 1000) + "] seconds");
+        log.error(parser.getDiagnostic());
+        throw new MojoExecutionException("Tests from " + input.inifiles + " timed out after [" + (timeout / 1000) + "] seconds", ex);
+      }
       throw new MojoExecutionException("Execution of [unittest] runner failed", ex);
+    } finally {
+      this.runners.remove(runner);
+      parser.getSuite().timedOut= runner.isTimedOut();
+      parser.finish(System.currentTimeMillis() - start, error);
     }
   }
 }
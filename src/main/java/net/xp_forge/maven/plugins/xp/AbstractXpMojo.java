@@ -7,12 +7,16 @@
 package net.xp_forge.maven.plugins.xp;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.FileNotFoundException;
 import java.util.Map;
 import java.util.Set;
 import java.util.List;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 
 import org.apache.maven.model.Dependency;
 import org.apache.maven.artifact.Artifact;
@@ -22,6 +26,11 @@ import org.apache.maven.project.MavenProjectHelper;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.shared.filtering.MavenResourcesFiltering;
 
+import net.xp_forge.maven.plugins.xp.io.IniFile;
+import net.xp_forge.maven.plugins.xp.io.StampFile;
+import net.xp_forge.maven.plugins.xp.util.ExecuteUtils;
+import net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath;
+
 /**
  * Base class for all MOJO's
  *
@@ -35,6 +44,8 @@ public abstract class AbstractXpMojo extends AbstractMojo {
   public static final String TOOLS_ARTIFACT_ID     = "tools";
   public static final String COMPILER_ARTIFACT_ID  = "compiler";
 
+  public static final String[] RUNNERS= { "cgen", "doclet", "unittest", "xar", "xcc", "xp", "xpcli", "xpi", "xpws" };
+
   // Application directories mapping (input => output)
   public static final Map<String, String> APP_DIRECTORIES_MAP;
   static {
@@ -207,6 +218,18 @@ public abstract class AbstractXpMojo extends AbstractMojo {
    */
   protected List<String> extensions;
 
+  /**
+   * OPcache file cache for the XP-Runners: "none" (default), "project" to cache compiled
+   * opcodes in "${project.build.directory}/.runtime/opcache", "user" to share the cache
+   * between projects in "~/.xp/opcache", or a directory
+   *
+   * @parameter expression="${xp.runtime.opcache}" default-value="none"
+   */
+  protected String opcache;
+
+  // Dependencies; if no plugin context is available
+  private Dependencies dependencies;
+
   /**
    * Returns executed project
    *
@@ -289,8 +312,41 @@ public abstract class AbstractXpMojo extends AbstractMojo {
     }
 
     // Return all non XP-artifacts
-    Set<Artifact> retVal= new HashSet<Artifact>();
-    for (Artifact artifact : (Iterable<Artifact>)this.project.getArtifacts()) {
+    return this.getDependencies().artifacts;
+  }
+
+  /**
+   * Get classpath made of the project's xar dependencies (all non XP-artifacts). It is built
+   * once per project and set of resolved artifacts, and shared by all mojos of the session
+   *
+   * @return net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath
+   */
+  protected Classpath getDependencyClasspath() {
+    return this.getDependencies().classpath;
+  }
+
+  /**
+   * Get cached dependencies for the current set of resolved artifacts; the cache is kept in the
+   * plugin context, as different mojos may resolve dependencies for different scopes
+   *
+   * @return net.xp_forge.maven.plugins.xp.AbstractXpMojo.Dependencies
+   */
+  @SuppressWarnings("unchecked")
+  private Dependencies getDependencies() {
+    Set<Artifact> resolved = this.project.getArtifacts();
+    Map context            = this.getPluginContext();
+    String key             = Dependencies.class.getName() + ":" + this.project.getId();
+
+    // Already built
+    Dependencies dependencies= null == context ? this.dependencies : (Dependencies)context.get(key);
+    if (null != dependencies && dependencies.resolved.equals(resolved)) {
+      return dependencies;
+    }
+
+    // Collect all non XP-artifacts
+    Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+    Classpath classpath     = new Classpath();
+    for (Artifact artifact : resolved) {
       if (
         artifact.getGroupId().equals(XP_FRAMEWORK_GROUP_ID) &&
         null == artifact.getClassifier() &&       // Some projects may require core-tests artifact as dependency
@@ -300,10 +356,15 @@ public abstract class AbstractXpMojo extends AbstractMojo {
           artifact.getArtifactId().equals(COMPILER_ARTIFACT_ID)
         )
       ) continue;
-      retVal.add(artifact);
+      artifacts.add(artifact);
+      classpath.add(artifact);
     }
 
-    return retVal;
+    // Cache
+    dependencies= new Dependencies(new HashSet<Artifact>(resolved), Collections.unmodifiableSet(artifacts), classpath);
+    this.dependencies= dependencies;
+    if (null != context) context.put(key, dependencies);
+    return dependencies;
   }
 
   /**
@@ -340,4 +401,82 @@ public abstract class AbstractXpMojo extends AbstractMojo {
     getLog().warn("The packaging for this project did not assign a file to the build artifact");
     return null;
   }
+
+  /**
+   * Add the XP runtime to the specified stamp: contents of the runner scripts and [xp.ini]
+   * (PHP executable, timezone, extensions, OPcache settings), the USE_XP directories and the
+   * PHP executable itself, so that changing or upgrading any of them invalidates the stamp
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.StampFile stamp
+   * @return void
+   * @throws java.io.IOException
+   */
+  protected void addRuntimeToStamp(StampFile stamp) throws IOException {
+    stamp.add("runners", this.runnersDirectory);
+    if (null == this.runnersDirectory) return;
+
+    // Runner scripts; the runners directory may be a shared one like "/usr/bin" for local installs
+    for (String runner : RUNNERS) {
+      File file= new File(this.runnersDirectory, runner + ExecuteUtils.getExecutableExtension());
+      if (file.exists()) stamp.addChecksum(file);
+    }
+
+    // Runtime configuration; the one next to the runners takes precedence
+    IniFile ini= new IniFile();
+    File[] iniFiles= {
+      new File(System.getProperty("user.home"), ".xp" + File.separator + "xp.ini"),
+      new File(this.runnersDirectory, "xp.ini")
+    };
+    for (File iniFile : iniFiles) {
+      stamp.addChecksum(iniFile);
+      if (iniFile.isFile()) ini.load(iniFile);
+    }
+
+    // USE_XP directories: our own bootstrap, or the local XP-Framework install
+    String use= null == this.use_xp ? ini.getProperty("use") : this.use_xp;
+    stamp.add("use_xp", use);
+    if (null != use) {
+      for (String path : use.split("[" + File.pathSeparator + "]")) {
+        if (0 == path.trim().length()) continue;
+        File directory= new File(path.trim());
+        if (!directory.isAbsolute()) directory= new File(this.runnersDirectory, path.trim());
+        if (directory.isDirectory()) stamp.addDirectory(directory);
+      }
+    }
+
+    // PHP executable; size and modification time change when it is upgraded
+    String php= ini.getProperty("runtime", "default");
+    File executable= null == php ? this.php : new File(php);
+    if (null == executable) {
+      try {
+        executable= ExecuteUtils.getExecutable("php");
+      } catch (FileNotFoundException ex) {
+        executable= null;
+      }
+    }
+    if (null != executable) stamp.addFile(executable.getCanonicalFile());
+  }
+
+  /**
+   * Project dependencies for one set of resolved artifacts
+   *
+   */
+  private static class Dependencies {
+    public Set<Artifact> resolved;
+    public Set<Artifact> artifacts;
+    public Classpath classpath;
+
+    /**
+     * Constructor
+     *
+     * @param  java.util.Set<org.apache.maven.artifact.Artifact> resolved All resolved artifacts
+     * @param  java.util.Set<org.apache.maven.artifact.Artifact> artifacts All non XP-artifacts
+     * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath classpath
+     */
+    public Dependencies(Set<Artifact> resolved, Set<Artifact> artifacts, Classpath classpath) {
+      this.resolved  = resolved;
+      this.artifacts = artifacts;
+      this.classpath = classpath;
+    }
+  }
 }
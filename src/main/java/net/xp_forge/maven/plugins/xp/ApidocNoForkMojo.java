@@ -166,7 +166,7 @@ public class ApidocNoForkMojo extends AbstractXpMojo {
     DocletRunnerInput input= new DocletRunnerInput("net.xp_forge.apidoc.Doclet");
 
     // Add classpaths
-    input.addClasspath(this.getArtifacts(false));
+    input.addClasspath(this.getDependencyClasspath());
     input.addClasspath(docletFile);
 
     // Add default sourcepaths (src/main/php)
@@ -43,6 +43,17 @@ public class CompileMojo extends AbstractCompileMojo {
    */
   private List<String> compileSourceRoots;
 
+  /**
+   * How to materialize application directories (webapp, doc_root, config, etc, xsl, deploy)
+   * in the target directory: "copy" (default) or "link" (hard-link unchanged files; falls
+   * back to copying where linking is not possible)
+   *
+   * E.g. &lt;appDirectoriesModes&gt;&lt;webapp&gt;link&lt;/webapp&gt;&lt;/appDirectoriesModes&gt;
+   *
+   * @parameter
+   */
+  private Map<String, String> appDirectoriesModes;
+
   /**
    * {@inheritDoc}
    *
@@ -112,4 +123,13 @@ public class CompileMojo extends AbstractCompileMojo {
   protected Map<String, String> getAppDirectoriesMap() {
     return AbstractXpMojo.APP_DIRECTORIES_MAP;
   }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  protected Map<String, String> getAppDirectoriesModes() {
+    return this.appDirectoriesModes;
+  }
 }
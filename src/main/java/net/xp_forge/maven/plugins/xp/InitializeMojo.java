@@ -221,15 +221,9 @@ public class InitializeMojo extends AbstractXpMojo {
     try {
       getLog().debug(" - Extracting runners from resources");
 
-      ExecuteUtils.saveRunner("cgen", targetDirectory);
-      ExecuteUtils.saveRunner("doclet", targetDirectory);
-      ExecuteUtils.saveRunner("unittest", targetDirectory);
-      ExecuteUtils.saveRunner("xar", targetDirectory);
-      ExecuteUtils.saveRunner("xcc", targetDirectory);
-      ExecuteUtils.saveRunner("xp", targetDirectory);
-      ExecuteUtils.saveRunner("xpcli", targetDirectory);
-      ExecuteUtils.saveRunner("xpi", targetDirectory);
-      ExecuteUtils.saveRunner("xpws", targetDirectory);
+      for (String runner : RUNNERS) {
+        ExecuteUtils.saveRunner(runner, targetDirectory);
+      }
 
     } catch (IOException ex) {
       throw new MojoExecutionException("Cannot extract XP-Runners to [" + targetDirectory + "]", ex);
@@ -251,6 +245,9 @@ public class InitializeMojo extends AbstractXpMojo {
       ini.setProperty("runtime", "extension", this.extensions);
     }
 
+    // Cache compiled opcodes across runner invocations
+    this.setupOpcache(ini);
+
     // Dump ini file
     File iniFile= new File(targetDirectory, "xp.ini");
     try {
@@ -373,6 +370,95 @@ public class InitializeMojo extends AbstractXpMojo {
     this.extensions= extensionsToLoad.isEmpty() ? null : extensionsToLoad;
   }
 
+  /**
+   * Setup OPcache file cache as configured by ${xp.runtime.opcache}. Each runner invocation is
+   * a new PHP process, so the shared memory cache is of no use; the file cache lets runners
+   * reuse opcodes compiled by previous ones
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.IniFile ini Where to add [runtime] settings
+   * @return void
+   * @throws org.apache.maven.plugin.MojoExecutionException
+   */
+  private void setupOpcache(IniFile ini) throws MojoExecutionException {
+    getLog().debug("Identifying OPcache setup");
+
+    // Determine cache directory
+    File cacheDirectory;
+    if (null == this.opcache || this.opcache.equals("none") || this.opcache.equals("false")) {
+      getLog().debug(" - Disabled");
+      return;
+    } else if (this.opcache.equals("project") || this.opcache.equals("true")) {
+      cacheDirectory= new File(this.outputDirectory, ".runtime" + File.separator + "opcache");
+    } else if (this.opcache.equals("user")) {
+      cacheDirectory= new File(System.getProperty("user.home"), ".xp" + File.separator + "opcache");
+    } else {
+      cacheDirectory= new File(this.opcache);
+    }
+
+    // Check PHP version: file cache is available as of PHP 7.0
+    PhpRunnerInput input= new PhpRunnerInput();
+    input.code= "echo PHP_VERSION_ID.'•'.(extension_loaded('Zend OPcache') ? 1 : 0)";
+    String[] probe= this.probePhp(input).split("•");
+    if (probe.length < 2 || !probe[0].matches("\\d+") || Integer.parseInt(probe[0]) < 70000) {
+      getLog().warn("PHP [" + this.php + "] does not support the OPcache file cache (PHP 7.0+ required); not using ${xp.runtime.opcache}");
+      return;
+    }
+
+    // Load OPcache extension if not already loaded; check it actually loads
+    String zendExtension= null;
+    if (!probe[1].equals("1")) {
+      zendExtension= OS.isFamilyWindows() ? "php_opcache.dll" : "opcache.so";
+
+      input= new PhpRunnerInput();
+      input.code= "echo extension_loaded('Zend OPcache') ? 1 : 0";
+      input.settings.put("zend_extension", zendExtension);
+      String loaded;
+      try {
+        loaded= this.probePhp(input);
+      } catch (MojoExecutionException ex) {
+        loaded= null;
+      }
+      if (!"1".equals(loaded)) {
+        getLog().warn("PHP [" + this.php + "] cannot load the OPcache extension; not using ${xp.runtime.opcache}");
+        return;
+      }
+    }
+
+    // Create cache directory
+    if (!cacheDirectory.exists() && !cacheDirectory.mkdirs()) {
+      throw new MojoExecutionException("Cannot create OPcache directory [" + cacheDirectory + "]");
+    }
+    getLog().info("OPcache    [" + cacheDirectory + "]");
+
+    // Enable for CLI, using the file cache only
+    if (null != zendExtension) {
+      ini.setProperty("runtime", "zend_extension", zendExtension);
+    }
+    ini.setProperty("runtime", "opcache.enable_cli", "1");
+    ini.setProperty("runtime", "opcache.file_cache", cacheDirectory.getAbsolutePath());
+    ini.setProperty("runtime", "opcache.file_cache_only", "1");
+  }
+
+  /**
+   * Run PHP code and return its trimmed output
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.php.PhpRunnerInput input
+   * @return java.lang.String
+   * @throws org.apache.maven.plugin.MojoExecutionException
+   */
+  private String probePhp(PhpRunnerInput input) throws MojoExecutionException {
+    PhpRunner runner= new PhpRunner(this.php, input);
+    runner.setLog(getLog());
+
+    // Execute runner
+    try {
+      runner.execute();
+    } catch (RunnerException ex) {
+      throw new MojoExecutionException("Execution of [php] runner failed: " + runner.getOutput().asString(), ex);
+    }
+    return runner.getOutput().asString().trim();
+  }
+
   /**
    * Get list of already loaded PHP extensions
    *
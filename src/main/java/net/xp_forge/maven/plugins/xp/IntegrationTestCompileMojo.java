@@ -143,4 +143,13 @@ public class IntegrationTestCompileMojo extends AbstractCompileMojo {
   protected Map<String, String> getAppDirectoriesMap() {
     return null;
   }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  protected Map<String, String> getAppDirectoriesModes() {
+    return null;
+  }
 }
@@ -8,6 +8,7 @@ package net.xp_forge.maven.plugins.xp;
 
 import java.io.File;
 import java.util.List;
+import java.util.ArrayList;
 
 import org.apache.maven.artifact.Artifact;
 
@@ -48,6 +49,112 @@ public class IntegrationTestMojo extends AbstractTestMojo {
    */
   protected boolean itSingleInstance;
 
+  /**
+   * Number of unittest runners to execute concurrently when not using a single runner instance.
+   * Each runner uses its own working directory in "${project.build.directory}/.unittest"
+   *
+   * @parameter expression="${xp.it.forkCount}" default-value="1"
+   */
+  protected int itForkCount;
+
+  /**
+   * Whether to stop as soon as tests from one [*.ini] file failed when running several forks:
+   * running unittest runners are killed and queued [*.ini] files are not started
+   *
+   * @parameter expression="${xp.it.failFast}" default-value="false"
+   */
+  protected boolean itFailFast;
+
+  /**
+   * Timeout in seconds for running tests from one [*.ini] file; the unittest runner is killed
+   * when exceeded, and the tests fail. 0 means no timeout
+   *
+   * @parameter expression="${xp.it.timeout}" default-value="0"
+   */
+  protected int itTimeout;
+
+  /**
+   * Timeout in seconds for running all tests; [*.ini] files are not started anymore and running
+   * unittest runners are killed when exceeded. 0 means no timeout
+   *
+   * @parameter expression="${xp.it.runTimeout}" default-value="0"
+   */
+  protected int itRunTimeout;
+
+  /**
+   * How many times to re-run tests from an [*.ini] file that failed. Tests passing on a retry
+   * are reported as flaky, and the flakiness of each [*.ini] file is kept in the test history
+   *
+   * @parameter expression="${xp.it.retries}" default-value="0"
+   */
+  protected int itRetries;
+
+  /**
+   * Test history file, where the duration of each [*.ini] file run is kept. Used to start
+   * the longest running [*.ini] files first when running several forks; point this to a shared
+   * location to keep the history across clean builds
+   *
+   * @parameter expression="${xp.it.historyFile}" default-value="${project.build.directory}/it-history.ini"
+   */
+  protected File itHistoryFile;
+
+  /**
+   * Shard of the [*.ini] files to run, as "index/total" with a 1-based index (e.g. "3/8"). Used
+   * to split tests across several machines; every [*.ini] file is run by exactly one shard
+   *
+   * @parameter expression="${xp.it.shard}"
+   */
+  protected String itShard;
+
+  /**
+   * Test history used to balance shards by duration. Read-only: it is never written while tests
+   * run, so all nodes agree on the shards as long as they are given the same file. If not set,
+   * [*.ini] files are distributed round-robin in order of their path, balancing their number
+   * but not their durations
+   *
+   * @parameter expression="${xp.it.shardHistory}"
+   */
+  protected File itShardHistory;
+
+  /**
+   * Directory where Surefire XML reports ("TEST-{ini}.xml") and a JSON summary ("summary.json")
+   * of the test results are written
+   *
+   * @parameter expression="${xp.it.reportsDirectory}" default-value="${project.build.directory}/xp-reports/it"
+   */
+  protected File itReportsDirectory;
+
+  /**
+   * Whether to skip [*.ini] files that passed before and whose inputs ([*.ini] file, classes,
+   * test classes, vendor libs and dependencies) did not change since. Disabled by default, as
+   * integration tests usually depend on external systems
+   *
+   * @parameter expression="${xp.it.cache}" default-value="false"
+   */
+  protected boolean itCache;
+
+  /**
+   * Whether to run all [*.ini] files, even if they passed before with the same inputs
+   *
+   * @parameter expression="${xp.it.forceRun}" default-value="false"
+   */
+  protected boolean itForceRun;
+
+  /**
+   * Whether to run only [*.ini] files whose test classes are impacted by changes since the last
+   * successful run (or since ${xp.it.impacted-since}), according to a source dependency graph
+   *
+   * @parameter expression="${xp.it.impacted-only}" default-value="false"
+   */
+  protected boolean itImpactedOnly;
+
+  /**
+   * Git revision to compare against when running impacted tests only (e.g. "origin/master")
+   *
+   * @parameter expression="${xp.it.impacted-since}"
+   */
+  protected String itImpactedSince;
+
   /**
    * {@inheritDoc}
    *
@@ -118,4 +225,125 @@ public class IntegrationTestMojo extends AbstractTestMojo {
   protected boolean isSingleInstance() {
     return this.itSingleInstance;
   }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getForkCount() {
+    return this.itForkCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getHistoryFile() {
+    return this.itHistoryFile;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected String getShard() {
+    return this.itShard;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getShardHistoryFile() {
+    return this.itShardHistory;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getReportsDirectory() {
+    return this.itReportsDirectory;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isCache() {
+    return this.itCache;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isForceRun() {
+    return this.itForceRun;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isImpactedOnly() {
+    return this.itImpactedOnly;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected String getImpactedSince() {
+    return this.itImpactedSince;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @SuppressWarnings("unchecked")
+  protected List<File> getSourceDirectories() {
+    List<File> retVal= new ArrayList<File>();
+    for (String root : (List<String>)this.project.getCompileSourceRoots()) {
+      retVal.add(new File(root));
+    }
+    String itSourceDirectory= this.project.getProperties().getProperty("project.itSourceDirectory");
+    if (null != itSourceDirectory) retVal.add(new File(itSourceDirectory));
+    retVal.add(new File(this.basedir, "src" + File.separator + "main" + File.separator + "php"));
+    retVal.add(new File(this.basedir, "src" + File.separator + "it" + File.separator + "php"));
+    return retVal;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isFailFast() {
+    return this.itFailFast;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getTimeout() {
+    return this.itTimeout;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getRunTimeout() {
+    return this.itRunTimeout;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getRetries() {
+    return this.itRetries;
+  }
 }
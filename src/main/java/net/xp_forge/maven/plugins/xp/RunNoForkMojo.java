@@ -119,7 +119,7 @@ public class RunNoForkMojo extends AbstractXpMojo {
     input.verbose= this.verbose;
 
     // Add dependency classpaths
-    input.addClasspath(this.getArtifacts(false));
+    input.addClasspath(this.getDependencyClasspath());
 
     // Add custom classpaths
     input.addClasspath(this.classpaths);
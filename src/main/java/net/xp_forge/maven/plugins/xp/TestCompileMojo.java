@@ -120,4 +120,13 @@ public class TestCompileMojo extends AbstractCompileMojo {
   protected Map<String, String> getAppDirectoriesMap() {
     return null;
   }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  protected Map<String, String> getAppDirectoriesModes() {
+    return null;
+  }
 }
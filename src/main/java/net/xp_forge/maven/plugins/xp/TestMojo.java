@@ -8,6 +8,7 @@ package net.xp_forge.maven.plugins.xp;
 
 import java.io.File;
 import java.util.List;
+import java.util.ArrayList;
 
 /**
  * Run unit tests
@@ -46,6 +47,112 @@ public class TestMojo extends AbstractTestMojo {
    */
   protected boolean testSingleInstance;
 
+  /**
+   * Number of unittest runners to execute concurrently when not using a single runner instance.
+   * Each runner uses its own working directory in "${project.build.directory}/.unittest"
+   *
+   * @parameter expression="${xp.test.forkCount}" default-value="1"
+   */
+  protected int testForkCount;
+
+  /**
+   * Whether to stop as soon as tests from one [*.ini] file failed when running several forks:
+   * running unittest runners are killed and queued [*.ini] files are not started
+   *
+   * @parameter expression="${xp.test.failFast}" default-value="false"
+   */
+  protected boolean testFailFast;
+
+  /**
+   * Timeout in seconds for running tests from one [*.ini] file; the unittest runner is killed
+   * when exceeded, and the tests fail. 0 means no timeout
+   *
+   * @parameter expression="${xp.test.timeout}" default-value="0"
+   */
+  protected int testTimeout;
+
+  /**
+   * Timeout in seconds for running all tests; [*.ini] files are not started anymore and running
+   * unittest runners are killed when exceeded. 0 means no timeout
+   *
+   * @parameter expression="${xp.test.runTimeout}" default-value="0"
+   */
+  protected int testRunTimeout;
+
+  /**
+   * How many times to re-run tests from an [*.ini] file that failed. Tests passing on a retry
+   * are reported as flaky, and the flakiness of each [*.ini] file is kept in the test history
+   *
+   * @parameter expression="${xp.test.retries}" default-value="0"
+   */
+  protected int testRetries;
+
+  /**
+   * Test history file, where the duration of each [*.ini] file run is kept. Used to start
+   * the longest running [*.ini] files first when running several forks; point this to a shared
+   * location to keep the history across clean builds
+   *
+   * @parameter expression="${xp.test.historyFile}" default-value="${project.build.directory}/test-history.ini"
+   */
+  protected File testHistoryFile;
+
+  /**
+   * Shard of the [*.ini] files to run, as "index/total" with a 1-based index (e.g. "3/8"). Used
+   * to split tests across several machines; every [*.ini] file is run by exactly one shard
+   *
+   * @parameter expression="${xp.test.shard}"
+   */
+  protected String testShard;
+
+  /**
+   * Test history used to balance shards by duration. Read-only: it is never written while tests
+   * run, so all nodes agree on the shards as long as they are given the same file. If not set,
+   * [*.ini] files are distributed round-robin in order of their path, balancing their number
+   * but not their durations
+   *
+   * @parameter expression="${xp.test.shardHistory}"
+   */
+  protected File testShardHistory;
+
+  /**
+   * Directory where Surefire XML reports ("TEST-{ini}.xml") and a JSON summary ("summary.json")
+   * of the test results are written
+   *
+   * @parameter expression="${xp.test.reportsDirectory}" default-value="${project.build.directory}/xp-reports/test"
+   */
+  protected File testReportsDirectory;
+
+  /**
+   * Whether to skip [*.ini] files that passed before and whose inputs ([*.ini] file, classes,
+   * test classes, vendor libs and dependencies) did not change since. Disabled by default, as
+   * tests may depend on things not part of the stamp
+   *
+   * @parameter expression="${xp.test.cache}" default-value="false"
+   */
+  protected boolean testCache;
+
+  /**
+   * Whether to run all [*.ini] files, even if they passed before with the same inputs
+   *
+   * @parameter expression="${xp.test.forceRun}" default-value="false"
+   */
+  protected boolean testForceRun;
+
+  /**
+   * Whether to run only [*.ini] files whose test classes are impacted by changes since the last
+   * successful run (or since ${xp.test.impacted-since}), according to a source dependency graph
+   *
+   * @parameter expression="${xp.test.impacted-only}" default-value="false"
+   */
+  protected boolean testImpactedOnly;
+
+  /**
+   * Git revision to compare against when running impacted tests only (e.g. "origin/master")
+   *
+   * @parameter expression="${xp.test.impacted-since}"
+   */
+  protected String testImpactedSince;
+
   /**
    * {@inheritDoc}
    *
@@ -93,4 +200,126 @@ public class TestMojo extends AbstractTestMojo {
   protected boolean isSingleInstance() {
     return this.testSingleInstance;
   }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getForkCount() {
+    return this.testForkCount;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getHistoryFile() {
+    return this.testHistoryFile;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected String getShard() {
+    return this.testShard;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getShardHistoryFile() {
+    return this.testShardHistory;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected File getReportsDirectory() {
+    return this.testReportsDirectory;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isCache() {
+    return this.testCache;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isForceRun() {
+    return this.testForceRun;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isImpactedOnly() {
+    return this.testImpactedOnly;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected String getImpactedSince() {
+    return this.testImpactedSince;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @SuppressWarnings("unchecked")
+  protected List<File> getSourceDirectories() {
+    List<File> retVal= new ArrayList<File>();
+    for (String root : (List<String>)this.project.getCompileSourceRoots()) {
+      retVal.add(new File(root));
+    }
+    for (String root : (List<String>)this.project.getTestCompileSourceRoots()) {
+      retVal.add(new File(root));
+    }
+    retVal.add(new File(this.basedir, "src" + File.separator + "main" + File.separator + "php"));
+    retVal.add(new File(this.basedir, "src" + File.separator + "test" + File.separator + "php"));
+    return retVal;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected boolean isFailFast() {
+    return this.testFailFast;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getTimeout() {
+    return this.testTimeout;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getRunTimeout() {
+    return this.testRunTimeout;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  protected int getRetries() {
+    return this.testRetries;
+  }
 }
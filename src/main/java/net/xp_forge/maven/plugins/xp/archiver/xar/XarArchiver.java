@@ -7,6 +7,7 @@
 package net.xp_forge.maven.plugins.xp.archiver.xar;
 
 import java.io.File;
+import java.io.InputStream;
 import java.io.IOException;
 
 import org.codehaus.plexus.archiver.AbstractArchiver;
@@ -15,15 +16,62 @@ import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.ResourceIterator;
 import org.codehaus.plexus.components.io.resources.PlexusIoResource;
 
-import net.xp_forge.xar.XarEntry;
-import net.xp_forge.xar.XarArchive;
-
 /**
  * A plexus archiver implementation for XAR file format
  *
+ * Entries are streamed from their sources into the archive when it is closed (see XarWriter),
+ * so memory use does not depend on the archive size
+ *
  */
 public class XarArchiver extends AbstractArchiver {
-   private XarArchive archive;
+  private XarWriter archive;
+  private boolean sorted= false;
+  private boolean incremental= false;
+  private double maxDeadSpace= 0.25;
+
+  /**
+   * Set whether to write entries sorted by name, so the same contents always result in
+   * the same archive
+   *
+   * @param  boolean sorted
+   * @return void
+   */
+  public void setSorted(boolean sorted) {
+    this.sorted= sorted;
+  }
+
+  /**
+   * Set whether to update an existing destination archive in place, only replacing changed
+   * entries (see XarWriter.update()). The archive then contains exactly the added entries,
+   * instead of the added entries plus the ones already in it. Ignored for sorted archives
+   *
+   * @param  boolean incremental
+   * @param  double maxDeadSpace Share of unused space in the archive that triggers a rewrite
+   * @return void
+   */
+  public void setIncremental(boolean incremental, double maxDeadSpace) {
+    this.incremental  = incremental;
+    this.maxDeadSpace = maxDeadSpace;
+  }
+
+  /**
+   * Get index file used for incremental updates
+   *
+   * @param  java.io.File archive
+   * @return java.io.File
+   */
+  public static File getIndexFile(File archive) {
+    return new File(archive.getPath() + ".index");
+  }
+
+  /**
+   * Check whether incremental updates are active
+   *
+   * @return boolean
+   */
+  private boolean isIncremental() {
+    return this.incremental && !this.sorted;
+  }
 
   /**
    * {@inheritDoc}
@@ -47,13 +95,13 @@ public class XarArchiver extends AbstractArchiver {
       throw new ArchiverException("Destination must not be a directory");
     }
 
-    // If destination exists, load archive
-    if (destFile.exists()) {
-      this.archive= new XarArchive(destFile);
-
-    // Create an empty archive
-    } else {
-      this.archive= new XarArchive();
+    // If destination exists, keep its entries; unless it is to be updated
+    this.archive= new XarWriter();
+    this.archive.setSorted(this.sorted);
+    if (this.isIncremental()) {
+      this.archive.setIndexFile(XarArchiver.getIndexFile(destFile));
+    } else if (destFile.exists()) {
+      this.archive.addArchive(destFile);
     }
 
     // Add resources
@@ -67,7 +115,16 @@ public class XarArchiver extends AbstractArchiver {
 
       // Add file to archive
       getLogger().debug("XAR: Add [" + entryName + "] -> [" + entry.getFile() + "]");
-      this.archive.addEntry(new XarEntry(entryName, entry.getFile()));
+      if (null != entry.getFile()) {
+        this.archive.addFile(entryName, entry.getFile());
+      } else {
+        final PlexusIoResource resource= entryRes;
+        this.archive.addEntry(entryName, new XarWriter.Source(resource.getSize()) {
+          public InputStream open() throws IOException {
+            return resource.getContents();
+          }
+        });
+      }
     }
   }
 
@@ -79,8 +136,13 @@ public class XarArchiver extends AbstractArchiver {
   protected void close() throws IOException {
     if (null == this.archive) return;
 
-    getLogger().debug("XAR: Close archive [" + this.getDestFile() + "]");
-    this.archive.save(this.getDestFile());
+    getLogger().debug("XAR: Close archive [" + this.getDestFile() + "] with [" + this.archive.size() + "] entries");
+    if (this.isIncremental() && this.archive.update(this.getDestFile(), this.maxDeadSpace)) {
+      getLogger().debug("XAR: Updated archive in place");
+    } else {
+      this.archive.write(this.getDestFile());
+    }
+    this.archive= null;
   }
 
   /**
@@ -0,0 +1,580 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.archiver.xar;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.BufferedOutputStream;
+import java.util.Map;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import net.xp_forge.maven.plugins.xp.util.FileUtils;
+
+/**
+ * Streaming writer for XAR archives (version 2)
+ *
+ * Only names and sizes of the entries are kept in memory; their contents are copied straight
+ * from their sources to the archive when writing, so memory use does not depend on archive size
+ *
+ * Format:
+ *   Header  256 bytes: "CCA", version (1 byte), entry count (uint32 LE), reserved
+ *   Index   256 bytes per entry: name (240 bytes, NUL-padded), size (uint32 LE),
+ *           offset relative to the start of the data (uint32 LE), reserved
+ *   Data    contents of all entries, in index order
+ *
+ * If an index file is set, the checksum, size, offset and source modification time of each
+ * entry are recorded there, which allows updating the archive in place (see update())
+ *
+ */
+public class XarWriter {
+  public static final int HEADER_SIZE = 0x0100;
+  public static final int ENTRY_SIZE  = 0x0100;
+  public static final int NAME_SIZE   = 240;
+  public static final long MAX_SIZE   = 0xFFFFFFFFL;
+
+  private Map<String, Source> entries= new LinkedHashMap<String, Source>();
+  private boolean sorted= false;
+  private File indexFile= null;
+
+  /**
+   * Set whether to write entries sorted by name or in the order they were added (default)
+   *
+   * @param  boolean sorted
+   * @return void
+   */
+  public void setSorted(boolean sorted) {
+    this.sorted= sorted;
+  }
+
+  /**
+   * Set index file, where checksums and locations of all entries are recorded when writing
+   *
+   * @param  java.io.File indexFile null for none (default)
+   * @return void
+   */
+  public void setIndexFile(File indexFile) {
+    this.indexFile= indexFile;
+  }
+
+  /**
+   * Add a file; replaces an entry with the same name
+   *
+   * @param  java.lang.String name Entry name inside the archive
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addFile(String name, final File file) throws IOException {
+    if (!file.isFile()) throw new IOException("Cannot read [" + file + "]");
+
+    this.addEntry(name, new Source(file.length(), file.lastModified()) {
+      public InputStream open() throws IOException {
+        return new FileInputStream(file);
+      }
+    });
+  }
+
+  /**
+   * Add an entry; replaces an entry with the same name
+   *
+   * @param  java.lang.String name Entry name inside the archive
+   * @param  net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Source source
+   * @return void
+   * @throws java.io.IOException When the name or size cannot be represented
+   */
+  public void addEntry(String name, Source source) throws IOException {
+    if (name.getBytes("UTF-8").length >= NAME_SIZE) {
+      throw new IOException("Entry name too long (max. " + (NAME_SIZE - 1) + " bytes) [" + name + "]");
+    }
+    if (source.size > MAX_SIZE) {
+      throw new IOException("Entry too large (max. " + MAX_SIZE + " bytes) [" + name + "]");
+    }
+    this.entries.remove(name);
+    this.entries.put(name, source);
+  }
+
+  /**
+   * Add all entries of an existing XAR archive, in its order. Entries added later with the same
+   * name replace them
+   *
+   * @param  java.io.File archive
+   * @return void
+   * @throws java.io.IOException When the archive cannot be read
+   */
+  public void addArchive(final File archive) throws IOException {
+    RandomAccessFile in= new RandomAccessFile(archive, "r");
+    try {
+      byte[] header= new byte[HEADER_SIZE];
+      in.readFully(header);
+      if ('C' != header[0] || 'C' != header[1] || 'A' != header[2]) {
+        throw new IOException("Not a XAR archive [" + archive + "]");
+      }
+      int version= header[3];
+      if (1 != version && 2 != version) {
+        throw new IOException("Unsupported XAR version " + version + " [" + archive + "]");
+      }
+
+      // Read index; version 1 entries start with the name in 80 bytes, followed by 160 unused bytes
+      long count = XarWriter.getInt(header, 4);
+      long data  = HEADER_SIZE + count * ENTRY_SIZE;
+      byte[] entry= new byte[ENTRY_SIZE];
+      for (long i= 0; i < count; i++) {
+        in.readFully(entry);
+        String name        = XarWriter.getString(entry, 0, 1 == version ? 80 : NAME_SIZE);
+        long size          = XarWriter.getInt(entry, NAME_SIZE);
+        final long offset  = data + XarWriter.getInt(entry, NAME_SIZE + 4);
+        if (offset + size > in.length()) {
+          throw new IOException("Corrupt XAR archive, entry [" + name + "] exceeds file size [" + archive + "]");
+        }
+
+        this.addEntry(name, new Source(size) {
+          public InputStream open() throws IOException {
+            FileInputStream stream= new FileInputStream(archive);
+            stream.getChannel().position(offset);
+            return stream;
+          }
+        });
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Get number of entries
+   *
+   * @return int
+   */
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Write archive. It is written to a temporary file in the same directory first, which then
+   * replaces the destination; so the destination may be one of the sources
+   *
+   * @param  java.io.File destination
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void write(File destination) throws IOException {
+    File parent= destination.getAbsoluteFile().getParentFile();
+    if (!parent.exists()) parent.mkdirs();
+    if (null != this.indexFile) this.indexFile.delete();
+
+    File tmp= File.createTempFile(destination.getName(), ".tmp", parent);
+    try {
+      List<Record> records= new ArrayList<Record>();
+      OutputStream out= new BufferedOutputStream(new FileOutputStream(tmp), 0x10000);
+      try {
+        this.write(out, records);
+      } finally {
+        out.close();
+      }
+
+      // Replace destination
+      if (!tmp.renameTo(destination)) {
+        destination.delete();
+        if (!tmp.renameTo(destination)) {
+          throw new IOException("Cannot write [" + destination + "]");
+        }
+      }
+      if (null != this.indexFile) XarWriter.writeIndex(this.indexFile, destination, records, 0L);
+    } finally {
+      if (tmp.exists()) tmp.delete();
+    }
+  }
+
+  /**
+   * Update an archive written with the same index file in place: contents of changed entries
+   * (by size and checksum) are appended to the archive and their index entries are pointed
+   * there; unchanged entries are not touched. The space of replaced contents is left unused
+   * ("dead space")
+   *
+   * Not possible (returns FALSE; use write() instead) if the set of entry names changed, as
+   * the index size would change, if the archive does not match the index file, or if the dead
+   * space would exceed the specified share of the archive size
+   *
+   * @param  java.io.File destination
+   * @param  double maxDeadSpace e.g. 0.25 to compact archives with more than 25% dead space
+   * @return boolean Whether the archive was updated
+   * @throws java.io.IOException
+   */
+  public boolean update(File destination, double maxDeadSpace) throws IOException {
+    if (null == this.indexFile || !destination.isFile() || !this.indexFile.isFile()) return false;
+
+    // Read index file; it must match the archive and its entries
+    Map<String, Record> recorded = new HashMap<String, Record>();
+    List<Record> records         = new ArrayList<Record>();
+    long dead                    = XarWriter.readIndex(this.indexFile, destination, records);
+    if (-1 == dead || records.size() != this.entries.size()) return false;
+    for (Record record : records) {
+      if (!this.entries.containsKey(record.name)) return false;
+      recorded.put(record.name, record);
+    }
+
+    // Find changed entries; sources with the same size and modification time are unchanged
+    List<Record> changed = new ArrayList<Record>();
+    long length          = destination.length();
+    long added           = 0L;
+    for (Map.Entry<String, Source> entry : this.entries.entrySet()) {
+      Record record = recorded.get(entry.getKey());
+      Source source = entry.getValue();
+      if (record.size == source.size && 0 != source.lastModified && record.lastModified == source.lastModified) continue;
+
+      if (record.size == source.size && record.checksum.equals(XarWriter.checksum(source))) {
+        record.lastModified= source.lastModified;
+        continue;
+      }
+
+      changed.add(record);
+      dead+= record.size;
+      added+= source.size;
+    }
+
+    // Compact instead if too much space would be unused
+    if (dead > (length + added) * maxDeadSpace) return false;
+    if (length + added - XarWriter.dataOffset(records.size()) > MAX_SIZE) return false;
+
+    // Append changed contents
+    if (!changed.isEmpty()) {
+      long offset= length - XarWriter.dataOffset(records.size());
+      OutputStream out= new BufferedOutputStream(new FileOutputStream(destination, true), 0x10000);
+      try {
+        for (Record record : changed) {
+          Source source       = this.entries.get(record.name);
+          record.offset       = offset;
+          record.size         = source.size;
+          record.lastModified = source.lastModified;
+          record.checksum     = XarWriter.copy(record.name, source, out);
+          offset+= record.size;
+        }
+      } finally {
+        out.close();
+      }
+
+      // Point index entries to the new contents
+      RandomAccessFile raf= new RandomAccessFile(destination, "rw");
+      try {
+        byte[] location= new byte[8];
+        for (Record record : changed) {
+          XarWriter.putInt(location, 0, record.size);
+          XarWriter.putInt(location, 4, record.offset);
+          raf.seek(HEADER_SIZE + record.slot * ENTRY_SIZE + NAME_SIZE);
+          raf.write(location);
+        }
+      } finally {
+        raf.close();
+      }
+    }
+
+    XarWriter.writeIndex(this.indexFile, destination, records, dead);
+    return true;
+  }
+
+  /**
+   * Write archive to the specified stream
+   *
+   * @param  java.io.OutputStream out
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void write(OutputStream out) throws IOException {
+    this.write(out, new ArrayList<Record>());
+  }
+
+  /**
+   * Write archive to the specified stream, recording locations and checksums of all entries
+   *
+   * @param  java.io.OutputStream out
+   * @param  java.util.List<net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Record> records
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void write(OutputStream out, List<Record> records) throws IOException {
+    Map<String, Source> written= this.sorted ? new TreeMap<String, Source>(this.entries) : this.entries;
+
+    // Header
+    byte[] header= new byte[HEADER_SIZE];
+    header[0]= 'C';
+    header[1]= 'C';
+    header[2]= 'A';
+    header[3]= 2;
+    XarWriter.putInt(header, 4, written.size());
+    out.write(header);
+
+    // Index; contents follow in the same order
+    long offset= 0L;
+    for (Map.Entry<String, Source> entry : written.entrySet()) {
+      if (offset > MAX_SIZE) {
+        throw new IOException("Archive too large (max. " + MAX_SIZE + " bytes of data)");
+      }
+
+      byte[] index = new byte[ENTRY_SIZE];
+      byte[] name  = entry.getKey().getBytes("UTF-8");
+      System.arraycopy(name, 0, index, 0, name.length);
+      XarWriter.putInt(index, NAME_SIZE, entry.getValue().size);
+      XarWriter.putInt(index, NAME_SIZE + 4, offset);
+      out.write(index);
+
+      Record record       = new Record();
+      record.name         = entry.getKey();
+      record.slot         = records.size();
+      record.size         = entry.getValue().size;
+      record.offset       = offset;
+      record.lastModified = entry.getValue().lastModified;
+      records.add(record);
+      offset+= entry.getValue().size;
+    }
+
+    // Contents
+    for (Record record : records) {
+      record.checksum= XarWriter.copy(record.name, written.get(record.name), out);
+    }
+    out.flush();
+  }
+
+  /**
+   * Copy contents of an entry
+   *
+   * @param  java.lang.String name
+   * @param  net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Source source
+   * @param  java.io.OutputStream out null to only calculate the checksum
+   * @return java.lang.String MD5 checksum of the contents
+   * @throws java.io.IOException
+   */
+  private static String copy(String name, Source source, OutputStream out) throws IOException {
+    MessageDigest md5;
+    try {
+      md5= MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("MD5 not supported", ex);
+    }
+
+    byte[] buffer  = new byte[0x10000];
+    long remaining = source.size;
+    InputStream in = source.open();
+    try {
+      while (remaining > 0) {
+        int read= in.read(buffer, 0, (int)Math.min(buffer.length, remaining));
+        if (-1 == read) {
+          throw new IOException("Entry [" + name + "] changed while writing archive: expected " + source.size + " bytes");
+        }
+        md5.update(buffer, 0, read);
+        if (null != out) out.write(buffer, 0, read);
+        remaining-= read;
+      }
+    } finally {
+      in.close();
+    }
+    return FileUtils.toHex(md5.digest());
+  }
+
+  /**
+   * Calculate checksum of an entry's contents
+   *
+   * @param  net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Source source
+   * @return java.lang.String
+   * @throws java.io.IOException
+   */
+  private static String checksum(Source source) throws IOException {
+    return XarWriter.copy(null, source, null);
+  }
+
+  /**
+   * Get offset of contents in an archive with the specified number of entries
+   *
+   * @param  int count
+   * @return long
+   */
+  private static long dataOffset(int count) {
+    return HEADER_SIZE + (long)count * ENTRY_SIZE;
+  }
+
+  /**
+   * Write index file. First line: archive size, modification time and dead space; then one
+   * line per entry, in index order: name, size, offset, source modification time, checksum
+   *
+   * @param  java.io.File indexFile
+   * @param  java.io.File archive
+   * @param  java.util.List<net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Record> records
+   * @param  long dead
+   * @return void
+   * @throws java.io.IOException
+   */
+  private static void writeIndex(File indexFile, File archive, List<Record> records, long dead) throws IOException {
+    PrintStream out= new PrintStream(indexFile, "UTF-8");
+    out.printf("%d\t%d\t%d", archive.length(), archive.lastModified(), dead);
+    out.println();
+    for (Record record : records) {
+      out.printf("%s\t%d\t%d\t%d\t%s", record.name, record.size, record.offset, record.lastModified, record.checksum);
+      out.println();
+    }
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Read index file
+   *
+   * @param  java.io.File indexFile
+   * @param  java.io.File archive
+   * @param  java.util.List<net.xp_forge.maven.plugins.xp.archiver.xar.XarWriter.Record> records
+   * @return long Dead space; -1 if the index file does not match the archive
+   * @throws java.io.IOException
+   */
+  private static long readIndex(File indexFile, File archive, List<Record> records) throws IOException {
+    BufferedReader in= new BufferedReader(new InputStreamReader(new FileInputStream(indexFile), "UTF-8"));
+    try {
+      String line= in.readLine();
+      if (null == line) return -1;
+      String[] fields= line.split("\t");
+      if (3 != fields.length) return -1;
+      if (archive.length() != Long.parseLong(fields[0]) || archive.lastModified() != Long.parseLong(fields[1])) return -1;
+      long dead= Long.parseLong(fields[2]);
+
+      while (null != (line= in.readLine())) {
+        fields= line.split("\t");
+        if (5 != fields.length) return -1;
+
+        Record record       = new Record();
+        record.name         = fields[0];
+        record.slot         = records.size();
+        record.size         = Long.parseLong(fields[1]);
+        record.offset       = Long.parseLong(fields[2]);
+        record.lastModified = Long.parseLong(fields[3]);
+        record.checksum     = fields[4];
+        records.add(record);
+      }
+      return dead;
+    } catch (NumberFormatException ex) {
+      return -1;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Read unsigned 32-bit little-endian integer
+   *
+   * @param  byte[] bytes
+   * @param  int offset
+   * @return long
+   */
+  private static long getInt(byte[] bytes, int offset) {
+    return
+      (bytes[offset] & 0xFFL) |
+      (bytes[offset + 1] & 0xFFL) << 8 |
+      (bytes[offset + 2] & 0xFFL) << 16 |
+      (bytes[offset + 3] & 0xFFL) << 24
+    ;
+  }
+
+  /**
+   * Write unsigned 32-bit little-endian integer
+   *
+   * @param  byte[] bytes
+   * @param  int offset
+   * @param  long value
+   * @return void
+   */
+  private static void putInt(byte[] bytes, int offset, long value) {
+    bytes[offset]     = (byte)(value & 0xFF);
+    bytes[offset + 1] = (byte)((value >> 8) & 0xFF);
+    bytes[offset + 2] = (byte)((value >> 16) & 0xFF);
+    bytes[offset + 3] = (byte)((value >> 24) & 0xFF);
+  }
+
+  /**
+   * Read NUL-padded UTF-8 string
+   *
+   * @param  byte[] bytes
+   * @param  int offset
+   * @param  int length
+   * @return java.lang.String
+   * @throws java.io.IOException
+   */
+  private static String getString(byte[] bytes, int offset, int length) throws IOException {
+    int end= offset;
+    while (end < offset + length && 0 != bytes[end]) end++;
+    return new String(bytes, offset, end - offset, "UTF-8");
+  }
+
+  /**
+   * Contents of an entry: its size is fixed when added, the contents are only read when
+   * the archive is written
+   *
+   */
+  public static abstract class Source {
+    protected long size;
+    protected long lastModified;
+
+    /**
+     * Constructor
+     *
+     * @param  long size
+     */
+    public Source(long size) {
+      this(size, 0L);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  long size
+     * @param  long lastModified Modification time of the contents; 0 if unknown
+     */
+    public Source(long size, long lastModified) {
+      this.size         = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Get size
+     *
+     * @return long
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Open contents for reading
+     *
+     * @return java.io.InputStream
+     * @throws java.io.IOException
+     */
+    public abstract InputStream open() throws IOException;
+  }
+
+  /**
+   * Location and checksum of an entry, as recorded in the index file
+   *
+   */
+  private static class Record {
+    String name;
+    int slot;
+    long size;
+    long offset;
+    long lastModified;
+    String checksum;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.archiver.zip;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.IOException;
+
+import org.codehaus.plexus.archiver.AbstractArchiver;
+import org.codehaus.plexus.archiver.ArchiveEntry;
+import org.codehaus.plexus.archiver.ArchiverException;
+import org.codehaus.plexus.archiver.ResourceIterator;
+import org.codehaus.plexus.components.io.resources.PlexusIoResource;
+
+/**
+ * A plexus archiver implementation for ZIP file format based on ZipWriter: entries are
+ * compressed using the specified number of threads, which does not affect the archive
+ *
+ * By default, entries are sorted, all get the same timestamp and normalized modes, producing
+ * byte-identical archives for identical contents
+ *
+ */
+public class DeterministicZipArchiver extends AbstractArchiver {
+  private ZipWriter archive;
+  private long time= ZipWriter.DOS_EPOCH;
+  private boolean sorted= true;
+  private boolean normalizeModes= true;
+  private int threads= 1;
+
+  /**
+   * Set timestamp of all entries
+   *
+   * @param  long time Milliseconds since epoch; ZipWriter.ENTRY_TIME to keep the files' times
+   * @return void
+   */
+  public void setTime(long time) {
+    this.time= time;
+  }
+
+  /**
+   * Set whether to write entries sorted by name (default) or in the order they were added
+   *
+   * @param  boolean sorted
+   * @return void
+   */
+  public void setSorted(boolean sorted) {
+    this.sorted= sorted;
+  }
+
+  /**
+   * Set whether to normalize modes to 0644 / 0755 (default) or to keep the files' modes
+   *
+   * @param  boolean normalizeModes
+   * @return void
+   */
+  public void setNormalizeModes(boolean normalizeModes) {
+    this.normalizeModes= normalizeModes;
+  }
+
+  /**
+   * Set number of threads to compress entries with
+   *
+   * @param  int threads
+   * @return void
+   */
+  public void setThreads(int threads) {
+    this.threads= threads;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  public void execute() throws ArchiverException, IOException {
+
+    // Get resources
+    final ResourceIterator it= getResources();
+    if (!it.hasNext()) {
+      throw new ArchiverException("No archive entries found");
+    }
+
+    // Get destination file
+    final File destFile= this.getDestFile();
+    if (null == destFile) {
+      throw new ArchiverException("Destination must not be null");
+    }
+    if (destFile.isDirectory()) {
+      throw new ArchiverException("Destination must not be a directory");
+    }
+
+    this.archive= new ZipWriter();
+    this.archive.setTime(this.time);
+    this.archive.setSorted(this.sorted);
+    this.archive.setNormalizeModes(this.normalizeModes);
+    this.archive.setThreads(this.threads);
+
+    // Add resources
+    while (it.hasNext()) {
+      ArchiveEntry entry= it.next();
+      final PlexusIoResource entryRes= entry.getResource();
+      String entryName= entry.getName().replace('\\', '/');
+
+      // Resource is directory
+      if (entryRes.isDirectory()) {
+        this.archive.addDirectory(entryName, entry.getMode());
+        continue;
+      }
+
+      // Add file to archive
+      getLogger().debug("ZIP: Add [" + entryName + "] -> [" + entry.getFile() + "]");
+      if (null != entry.getFile()) {
+        this.archive.addFile(entryName, entry.getFile(), entry.getMode());
+      } else {
+        this.archive.addEntry(entryName, new ZipWriter.Source(entryRes.getSize(), entryRes.getLastModified()) {
+          public InputStream open() throws IOException {
+            return entryRes.getContents();
+          }
+        }, entry.getMode());
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  protected void close() throws IOException {
+    if (null == this.archive) return;
+
+    getLogger().debug("ZIP: Close archive [" + this.getDestFile() + "] with [" + this.archive.size() + "] entries");
+    this.archive.write(this.getDestFile());
+    this.archive= null;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  protected String getArchiveType() {
+    return "zip";
+  }
+}
@@ -0,0 +1,769 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.archiver.zip;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.TimeZone;
+import java.util.Calendar;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Deterministic ZIP writer: the same entries always result in the same bytes
+ *
+ * - All entries get the same modification time, unless set to use each entry's own
+ * - Entries are written sorted by name, unless disabled
+ * - Only Unix modes are stored (no owners, no extra fields), normalized to 0644 / 0755
+ *   unless disabled
+ * - Contents are deflated; sizes and checksums follow in data descriptors, so contents are
+ *   streamed from their sources and memory use does not depend on archive size
+ *
+ * Entries are deflated independently of each other, so with more than one thread they are
+ * compressed concurrently; the archive is the same regardless of the number of threads
+ *
+ * ZIP64 is not supported: at most 65535 entries and 4 GB
+ *
+ */
+public class ZipWriter {
+  public static final long MAX_SIZE     = 0xFFFFFFFFL;
+  public static final int MAX_ENTRIES   = 0xFFFF;
+  public static final long DOS_EPOCH    = 315532800000L;  // 1980-01-01T00:00:00Z
+  public static final long ENTRY_TIME   = -1L;
+  public static final int SPILL_SIZE    = 0x400000;       // Deflate larger entries to temporary files
+
+  private static final int FLAGS_UTF8       = 0x0800;
+  private static final int FLAGS_DESCRIPTOR = 0x0008;
+  private static final int VERSION          = 20;
+  private static final int VERSION_UNIX     = (3 << 8) | VERSION;
+  private static final int STORED           = 0;
+  private static final int DEFLATED         = 8;
+
+  private Map<String, Entry> entries= new LinkedHashMap<String, Entry>();
+  private long time= DOS_EPOCH;
+  private boolean sorted= true;
+  private int level= Deflater.DEFAULT_COMPRESSION;
+  private int threads= 1;
+  private boolean normalizeModes= true;
+
+  /**
+   * Set modification time of all entries
+   *
+   * Pass ENTRY_TIME to use each entry's own modification time instead; these are written in
+   * the machine's timezone, as other zip tools do
+   *
+   * @param  long time Milliseconds since epoch (UTC); times before 1980 are written as 1980-01-01
+   * @return void
+   */
+  public void setTime(long time) {
+    this.time= time;
+  }
+
+  /**
+   * Set whether to write entries sorted by name (default) or in the order they were added
+   *
+   * @param  boolean sorted
+   * @return void
+   */
+  public void setSorted(boolean sorted) {
+    this.sorted= sorted;
+  }
+
+  /**
+   * Set compression level
+   *
+   * @param  int level 0-9, or java.util.zip.Deflater.DEFAULT_COMPRESSION
+   * @return void
+   */
+  public void setLevel(int level) {
+    this.level= level;
+  }
+
+  /**
+   * Set whether to normalize modes to 0644 / 0755 (default) or to keep the permission bits
+   * of the modes passed when adding entries
+   *
+   * @param  boolean normalizeModes
+   * @return void
+   */
+  public void setNormalizeModes(boolean normalizeModes) {
+    this.normalizeModes= normalizeModes;
+  }
+
+  /**
+   * Set number of threads to compress entries with
+   *
+   * @param  int threads
+   * @return void
+   */
+  public void setThreads(int threads) {
+    this.threads= Math.max(1, threads);
+  }
+
+  /**
+   * Add a file; replaces an entry with the same name
+   *
+   * @param  java.lang.String name Entry name inside the archive
+   * @param  java.io.File file
+   * @param  int mode Unix mode; only the executable bits are kept
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addFile(String name, final File file, int mode) throws IOException {
+    if (!file.isFile()) throw new IOException("Cannot read [" + file + "]");
+
+    this.addEntry(name, new Source(file.length(), file.lastModified()) {
+      public InputStream open() throws IOException {
+        return new FileInputStream(file);
+      }
+    }, mode);
+  }
+
+  /**
+   * Add an entry; replaces an entry with the same name
+   *
+   * @param  java.lang.String name Entry name inside the archive
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Source source
+   * @param  int mode Unix mode; only the executable bits are kept if modes are normalized
+   * @return void
+   * @throws java.io.IOException When the size cannot be represented
+   */
+  public void addEntry(String name, Source source, int mode) throws IOException {
+    if (source.size > MAX_SIZE) {
+      throw new IOException("Entry too large (max. " + MAX_SIZE + " bytes) [" + name + "]");
+    }
+    this.put(new Entry(name, source, 0100000 | this.permissions(mode, 0644)));
+  }
+
+  /**
+   * Add a directory; names get a trailing slash
+   *
+   * @param  java.lang.String name
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addDirectory(String name) throws IOException {
+    this.addDirectory(name, 0755);
+  }
+
+  /**
+   * Add a directory; names get a trailing slash
+   *
+   * @param  java.lang.String name
+   * @param  int mode Unix mode; ignored if modes are normalized
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addDirectory(String name, int mode) throws IOException {
+    this.put(new Entry(name.endsWith("/") ? name : name + "/", null, 040000 | (this.normalizeModes ? 0755 : this.permissions(mode, 0755))));
+  }
+
+  /**
+   * Get permission bits to store for the specified mode
+   *
+   * @param  int mode
+   * @param  int fallback Used if the mode has no permission bits
+   * @return int
+   */
+  private int permissions(int mode, int fallback) {
+    if (this.normalizeModes) return 0 != (mode & 0111) ? 0755 : 0644;
+    return 0 == (mode & 07777) ? fallback : mode & 07777;
+  }
+
+  /**
+   * Add entry, replacing any with the same name
+   *
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void put(Entry entry) throws IOException {
+    if (entry.name.length() > 0xFFFF) {
+      throw new IOException("Entry name too long [" + entry.name + "]");
+    }
+    this.entries.remove(entry.name);
+    this.entries.put(entry.name, entry);
+    if (this.entries.size() > MAX_ENTRIES) {
+      throw new IOException("Too many entries (max. " + MAX_ENTRIES + ")");
+    }
+  }
+
+  /**
+   * Get number of entries
+   *
+   * @return int
+   */
+  public int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Write archive. It is written to a temporary file in the same directory first, which then
+   * replaces the destination
+   *
+   * @param  java.io.File destination
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void write(File destination) throws IOException {
+    File parent= destination.getAbsoluteFile().getParentFile();
+    if (!parent.exists()) parent.mkdirs();
+
+    File tmp= File.createTempFile(destination.getName(), ".tmp", parent);
+    try {
+      OutputStream out= new BufferedOutputStream(new FileOutputStream(tmp), 0x10000);
+      try {
+        this.write(out);
+      } finally {
+        out.close();
+      }
+
+      // Replace destination
+      if (!tmp.renameTo(destination)) {
+        destination.delete();
+        if (!tmp.renameTo(destination)) {
+          throw new IOException("Cannot write [" + destination + "]");
+        }
+      }
+    } finally {
+      if (tmp.exists()) tmp.delete();
+    }
+  }
+
+  /**
+   * Write archive to the specified stream
+   *
+   * @param  java.io.OutputStream out
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void write(OutputStream out) throws IOException {
+    List<Entry> written= new ArrayList<Entry>(this.sorted
+      ? new TreeMap<String, Entry>(this.entries).values()
+      : this.entries.values()
+    );
+    for (Entry entry : written) {
+      entry.dosTime= this.dosTime(entry);
+    }
+
+    // Local headers and contents
+    long offset= this.threads > 1 && written.size() > 1
+      ? this.writeContentsConcurrently(out, written)
+      : this.writeContents(out, written)
+    ;
+
+    // Central directory
+    long directoryOffset= offset;
+    if (directoryOffset > MAX_SIZE) throw new IOException("Archive too large (max. " + MAX_SIZE + " bytes)");
+    for (Entry entry : written) {
+      byte[] name= entry.name.getBytes("UTF-8");
+      boolean directory= null == entry.source;
+      ZipWriter.writeInt(out, 0x02014b50);
+      ZipWriter.writeShort(out, VERSION_UNIX);
+      ZipWriter.writeShort(out, VERSION);
+      ZipWriter.writeShort(out, directory ? FLAGS_UTF8 : FLAGS_UTF8 | FLAGS_DESCRIPTOR);
+      ZipWriter.writeShort(out, directory ? STORED : DEFLATED);
+      ZipWriter.writeInt(out, entry.dosTime);
+      ZipWriter.writeInt(out, entry.crc);
+      ZipWriter.writeInt(out, entry.compressed);
+      ZipWriter.writeInt(out, directory ? 0 : entry.source.size);
+      ZipWriter.writeShort(out, name.length);
+      ZipWriter.writeShort(out, 0);             // Extra field length
+      ZipWriter.writeShort(out, 0);             // Comment length
+      ZipWriter.writeShort(out, 0);             // Disk number
+      ZipWriter.writeShort(out, 0);             // Internal attributes
+      ZipWriter.writeInt(out, ((long)entry.mode << 16) | (directory ? 0x10 : 0));
+      ZipWriter.writeInt(out, entry.offset);
+      out.write(name);
+      offset+= 46 + name.length;
+    }
+
+    // End of central directory
+    ZipWriter.writeInt(out, 0x06054b50);
+    ZipWriter.writeShort(out, 0);
+    ZipWriter.writeShort(out, 0);
+    ZipWriter.writeShort(out, written.size());
+    ZipWriter.writeShort(out, written.size());
+    ZipWriter.writeInt(out, offset - directoryOffset);
+    ZipWriter.writeInt(out, directoryOffset);
+    ZipWriter.writeShort(out, 0);
+    out.flush();
+  }
+
+  /**
+   * Write local headers and contents, deflating entries one after another
+   *
+   * @param  java.io.OutputStream out
+   * @param  java.util.List<net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry> written
+   * @return long Number of bytes written
+   * @throws java.io.IOException
+   */
+  private long writeContents(OutputStream out, List<Entry> written) throws IOException {
+    long offset= 0L;
+    Compressor compressor= new Compressor(this.level);
+    try {
+      for (Entry entry : written) {
+        if (offset > MAX_SIZE) throw new IOException("Archive too large (max. " + MAX_SIZE + " bytes)");
+        entry.offset= offset;
+
+        offset+= ZipWriter.writeLocalHeader(out, entry);
+        if (null == entry.source) continue;
+
+        compressor.deflate(entry, out);
+        offset+= entry.compressed + ZipWriter.writeDescriptor(out, entry);
+      }
+    } finally {
+      compressor.end();
+    }
+    return offset;
+  }
+
+  /**
+   * Write local headers and contents, deflating entries concurrently. Entries are deflated
+   * ahead into memory (or temporary files for entries larger than SPILL_SIZE), at most two
+   * per thread, and written in order
+   *
+   * @param  java.io.OutputStream out
+   * @param  java.util.List<net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry> written
+   * @return long Number of bytes written
+   * @throws java.io.IOException
+   */
+  private long writeContentsConcurrently(OutputStream out, List<Entry> written) throws IOException {
+    final BlockingQueue<Compressor> compressors= new LinkedBlockingQueue<Compressor>();
+    for (int i= 0; i < this.threads; i++) {
+      compressors.add(new Compressor(this.level));
+    }
+
+    long offset= 0L;
+    int window= this.threads * 2;
+    int submitted= 0;
+    LinkedList<Future<Deflated>> pending= new LinkedList<Future<Deflated>>();
+    ExecutorService pool= Executors.newFixedThreadPool(this.threads);
+    try {
+      for (Entry entry : written) {
+
+        // Keep the window filled
+        while (submitted < written.size() && pending.size() < window) {
+          final Entry next= written.get(submitted++);
+          pending.add(pool.submit(new Callable<Deflated>() {
+            public Deflated call() throws Exception {
+              return ZipWriter.deflate(next, compressors);
+            }
+          }));
+        }
+
+        Deflated deflated= ZipWriter.await(pending.removeFirst());
+        try {
+          if (offset > MAX_SIZE) throw new IOException("Archive too large (max. " + MAX_SIZE + " bytes)");
+          entry.offset= offset;
+
+          offset+= ZipWriter.writeLocalHeader(out, entry);
+          if (null == entry.source) continue;
+
+          deflated.writeTo(out);
+          offset+= entry.compressed + ZipWriter.writeDescriptor(out, entry);
+        } finally {
+          deflated.dispose();
+        }
+      }
+    } finally {
+
+      // Stop workers and remove what they deflated ahead
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      for (Future<Deflated> future : pending) {
+        try {
+          if (future.isDone() && !future.isCancelled()) future.get().dispose();
+        } catch (Exception ignored) {
+          // Failed anyway
+        }
+      }
+      for (Compressor compressor : compressors) {
+        compressor.end();
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Deflate an entry into memory or, for entries larger than SPILL_SIZE, into a temporary file
+   *
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+   * @param  java.util.concurrent.BlockingQueue<net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Compressor> compressors
+   * @return net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Deflated
+   * @throws java.io.IOException
+   * @throws java.lang.InterruptedException
+   */
+  private static Deflated deflate(Entry entry, BlockingQueue<Compressor> compressors) throws IOException, InterruptedException {
+    Deflated deflated= new Deflated();
+    if (null == entry.source) return deflated;
+
+    Compressor compressor= compressors.take();
+    try {
+      if (entry.source.size > SPILL_SIZE) {
+        deflated.file= File.createTempFile("zip", ".deflated");
+        OutputStream out= new BufferedOutputStream(new FileOutputStream(deflated.file), 0x10000);
+        try {
+          compressor.deflate(entry, out);
+        } finally {
+          out.close();
+        }
+      } else {
+        deflated.bytes= new ByteArrayOutputStream((int)Math.max(0x100, entry.source.size / 2));
+        compressor.deflate(entry, deflated.bytes);
+      }
+      return deflated;
+    } catch (IOException ex) {
+      deflated.dispose();
+      throw ex;
+    } finally {
+      compressors.add(compressor);
+    }
+  }
+
+  /**
+   * Wait for an entry to be deflated
+   *
+   * @param  java.util.concurrent.Future<net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Deflated> future
+   * @return net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Deflated
+   * @throws java.io.IOException
+   */
+  private static Deflated await(Future<Deflated> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while compressing entries");
+    } catch (ExecutionException ex) {
+      Throwable cause= ex.getCause();
+      if (cause instanceof IOException) throw (IOException)cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException)cause;
+      if (cause instanceof Error) throw (Error)cause;
+      throw new IOException("Cannot compress entry", cause);
+    }
+  }
+
+  /**
+   * Write data descriptor
+   *
+   * @param  java.io.OutputStream out
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+   * @return int Number of bytes written
+   * @throws java.io.IOException
+   */
+  private static int writeDescriptor(OutputStream out, Entry entry) throws IOException {
+    ZipWriter.writeInt(out, 0x08074b50);
+    ZipWriter.writeInt(out, entry.crc);
+    ZipWriter.writeInt(out, entry.compressed);
+    ZipWriter.writeInt(out, entry.source.size);
+    return 16;
+  }
+
+  /**
+   * Write local file header
+   *
+   * @param  java.io.OutputStream out
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+   * @return int Number of bytes written
+   * @throws java.io.IOException
+   */
+  private static int writeLocalHeader(OutputStream out, Entry entry) throws IOException {
+    byte[] name= entry.name.getBytes("UTF-8");
+    boolean directory= null == entry.source;
+    ZipWriter.writeInt(out, 0x04034b50);
+    ZipWriter.writeShort(out, VERSION);
+    ZipWriter.writeShort(out, directory ? FLAGS_UTF8 : FLAGS_UTF8 | FLAGS_DESCRIPTOR);
+    ZipWriter.writeShort(out, directory ? STORED : DEFLATED);
+    ZipWriter.writeInt(out, entry.dosTime);
+    ZipWriter.writeInt(out, 0);                 // CRC, sizes: in data descriptor
+    ZipWriter.writeInt(out, 0);
+    ZipWriter.writeInt(out, 0);
+    ZipWriter.writeShort(out, name.length);
+    ZipWriter.writeShort(out, 0);               // Extra field length
+    out.write(name);
+    return 30 + name.length;
+  }
+
+  /**
+   * Get MS-DOS date and time of an entry. A fixed time is converted using UTC so the result
+   * does not depend on the machine's timezone
+   *
+   * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+   * @return int
+   */
+  private int dosTime(Entry entry) {
+    if (ENTRY_TIME != this.time) {
+      return ZipWriter.dosTime(this.time, TimeZone.getTimeZone("UTC"));
+    }
+    long lastModified= null == entry.source ? 0L : entry.source.lastModified;
+    return ZipWriter.dosTime(0L == lastModified ? DOS_EPOCH : lastModified, TimeZone.getDefault());
+  }
+
+  /**
+   * Convert time to MS-DOS date and time
+   *
+   * @param  long time
+   * @param  java.util.TimeZone zone
+   * @return int
+   */
+  private static int dosTime(long time, TimeZone zone) {
+    Calendar cal= Calendar.getInstance(zone);
+    cal.setTimeInMillis(Math.max(DOS_EPOCH, time));
+    return
+      (cal.get(Calendar.YEAR) - 1980) << 25 |
+      (cal.get(Calendar.MONTH) + 1) << 21 |
+      cal.get(Calendar.DAY_OF_MONTH) << 16 |
+      cal.get(Calendar.HOUR_OF_DAY) << 11 |
+      cal.get(Calendar.MINUTE) << 5 |
+      cal.get(Calendar.SECOND) >> 1
+    ;
+  }
+
+  /**
+   * Write 16-bit little-endian integer
+   *
+   * @param  java.io.OutputStream out
+   * @param  int value
+   * @return void
+   * @throws java.io.IOException
+   */
+  private static void writeShort(OutputStream out, int value) throws IOException {
+    out.write(value & 0xFF);
+    out.write((value >> 8) & 0xFF);
+  }
+
+  /**
+   * Write 32-bit little-endian integer
+   *
+   * @param  java.io.OutputStream out
+   * @param  long value
+   * @return void
+   * @throws java.io.IOException
+   */
+  private static void writeInt(OutputStream out, long value) throws IOException {
+    out.write((int)(value & 0xFF));
+    out.write((int)((value >> 8) & 0xFF));
+    out.write((int)((value >> 16) & 0xFF));
+    out.write((int)((value >> 24) & 0xFF));
+  }
+
+  /**
+   * An archive entry
+   *
+   */
+  private static class Entry {
+    String name;
+    Source source;
+    int mode;
+    long offset;
+    int dosTime;
+    long crc;
+    long compressed;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String name
+     * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Source source null for directories
+     * @param  int mode
+     */
+    Entry(String name, Source source, int mode) {
+      this.name   = name;
+      this.source = source;
+      this.mode   = mode;
+    }
+  }
+
+  /**
+   * Deflates entry contents; raw deflate streams with the same level result in the same
+   * bytes, whichever compressor is used
+   *
+   */
+  private static class Compressor {
+    Deflater deflater;
+    byte[] buffer   = new byte[0x10000];
+    byte[] deflated = new byte[0x10000];
+
+    /**
+     * Constructor
+     *
+     * @param  int level
+     */
+    Compressor(int level) {
+      this.deflater= new Deflater(level, true);
+    }
+
+    /**
+     * Deflate contents of an entry; sets its checksum and compressed size
+     *
+     * @param  net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter.Entry entry
+     * @param  java.io.OutputStream out
+     * @return void
+     * @throws java.io.IOException
+     */
+    void deflate(Entry entry, OutputStream out) throws IOException {
+      CRC32 crc      = new CRC32();
+      long remaining = entry.source.size;
+      InputStream in = entry.source.open();
+      this.deflater.reset();
+      try {
+        while (remaining > 0) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while compressing [" + entry.name + "]");
+          }
+          int read= in.read(this.buffer, 0, (int)Math.min(this.buffer.length, remaining));
+          if (-1 == read) {
+            throw new IOException("Entry [" + entry.name + "] changed while writing archive: expected " + entry.source.size + " bytes");
+          }
+          crc.update(this.buffer, 0, read);
+          this.deflater.setInput(this.buffer, 0, read);
+          while (!this.deflater.needsInput()) {
+            int length= this.deflater.deflate(this.deflated);
+            out.write(this.deflated, 0, length);
+          }
+          remaining-= read;
+        }
+      } finally {
+        in.close();
+      }
+      this.deflater.finish();
+      while (!this.deflater.finished()) {
+        int length= this.deflater.deflate(this.deflated);
+        out.write(this.deflated, 0, length);
+      }
+
+      entry.crc        = crc.getValue();
+      entry.compressed = this.deflater.getBytesWritten();
+      if (entry.compressed > MAX_SIZE) throw new IOException("Entry too large when compressed [" + entry.name + "]");
+    }
+
+    /**
+     * Free resources
+     *
+     * @return void
+     */
+    void end() {
+      this.deflater.end();
+    }
+  }
+
+  /**
+   * Deflated contents of an entry, held in memory or in a temporary file
+   *
+   */
+  private static class Deflated {
+    ByteArrayOutputStream bytes;
+    File file;
+
+    /**
+     * Write contents
+     *
+     * @param  java.io.OutputStream out
+     * @return void
+     * @throws java.io.IOException
+     */
+    void writeTo(OutputStream out) throws IOException {
+      if (null != this.bytes) {
+        this.bytes.writeTo(out);
+      } else if (null != this.file) {
+        InputStream in= new BufferedInputStream(new FileInputStream(this.file), 0x10000);
+        try {
+          byte[] buffer= new byte[0x10000];
+          for (int read; -1 != (read= in.read(buffer)); ) {
+            out.write(buffer, 0, read);
+          }
+        } finally {
+          in.close();
+        }
+      }
+    }
+
+    /**
+     * Free memory and remove temporary file
+     *
+     * @return void
+     */
+    void dispose() {
+      this.bytes= null;
+      if (null != this.file) this.file.delete();
+      this.file= null;
+    }
+  }
+
+  /**
+   * Contents of an entry: its size is fixed when added, the contents are only read when
+   * the archive is written
+   *
+   */
+  public static abstract class Source {
+    protected long size;
+    protected long lastModified;
+
+    /**
+     * Constructor
+     *
+     * @param  long size
+     */
+    public Source(long size) {
+      this(size, 0L);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  long size
+     * @param  long lastModified Modification time of the contents; 0 if unknown
+     */
+    public Source(long size, long lastModified) {
+      this.size         = size;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * Get size
+     *
+     * @return long
+     */
+    public long getSize() {
+      return this.size;
+    }
+
+    /**
+     * Open contents for reading
+     *
+     * @return java.io.InputStream
+     * @throws java.io.IOException
+     */
+    public abstract InputStream open() throws IOException;
+  }
+}
@@ -16,6 +16,7 @@ import java.util.concurrent.ExecutionException;
 
 import org.apache.maven.plugin.logging.Log;
 import org.apache.commons.exec.LogOutputStream;
+import org.apache.commons.exec.ExecuteWatchdog;
 
 import net.xp_forge.maven.plugins.xp.util.ExecuteUtils;
 import net.xp_forge.maven.plugins.xp.exec.RunnerOutput;
@@ -31,6 +32,11 @@ public abstract class AbstractRunner {
   private File workingDirectory;
   private Map<String, String> environmentVariables= new HashMap<String, String>();
   private RunnerOutput output;
+  private List<RunnerOutputListener> listeners= new ArrayList<RunnerOutputListener>();
+  private ExecuteWatchdog watchdog;
+  private boolean destroyed= false;
+  private boolean timedOut= false;
+  private long timeout= 0L;
 
   /**
    * Constructor
@@ -145,26 +151,40 @@ public abstract class AbstractRunner {
    * @throws net.xp_forge.maven.plugins.xp.runners.RunnerException When execution failed
    */
   protected void executeCommand(List<String> arguments, boolean captureOutput) throws RunnerException {
+    LogOutputStream logOutputStream;
 
-    // If captureOutput is disabled, send output to $cat and return null
+    // If captureOutput is disabled, send output to $cat
     if (false == captureOutput) {
-      try {
-        ExecuteUtils.executeCommand(
-          this.getExecutable(),
-          arguments,
-          this.getWorkingDirectory(),
-          this.getEnvironmentVariables(),
-          this.log
-        );
-      } catch (ExecutionException ex) {
-        throw new RunnerException("Execution failed", ex);
-      }
+      logOutputStream= new LogOutputStream() {
+        @Override
+        protected void processLine(String line, @SuppressWarnings("unused") int level) {
+          ExecuteUtils.logLine(getLog(), line);
+          fireOutputLine(line);
+        }
+      };
 
-      return;
+    // Capture output inside $outputLines
+    } else {
+      this.output.clear();
+      logOutputStream= new LogOutputStream() {
+        @Override
+        protected void processLine(String line, @SuppressWarnings("unused") int level) {
+          output.addLine(line);
+          fireOutputLine(line);
+        }
+      };
     }
 
-    // Execute command and capture output inside $outputLines
-    this.output.clear();
+    // Watchdog used to kill the process via destroy() or when the timeout is exceeded
+    ExecuteWatchdog watchdog= new ExecuteWatchdog(this.timeout > 0 ? this.timeout : ExecuteWatchdog.INFINITE_TIMEOUT);
+    synchronized (this) {
+      if (this.destroyed) {
+        throw new RunnerException("Execution cancelled");
+      }
+      this.watchdog= watchdog;
+    }
+
+    // Execute command
     try {
       ExecuteUtils.executeCommand(
         this.getExecutable(),
@@ -172,19 +192,76 @@ public abstract class AbstractRunner {
         this.getWorkingDirectory(),
         this.getEnvironmentVariables(),
         this.log,
-        new LogOutputStream() {
-          @Override
-          protected void processLine(String line, @SuppressWarnings("unused") int level) {
-            output.addLine(line);
-          }
-        }
+        logOutputStream,
+        watchdog
       );
-
     } catch (ExecutionException ex) {
+      if (this.isDestroyed()) {
+        throw new RunnerException("Execution cancelled", ex);
+      }
+
+      // Killed by watchdog
+      if (watchdog.killedProcess()) {
+        synchronized (this) {
+          this.timedOut= true;
+        }
+        throw new RunnerException("Execution timed out after " + this.timeout + " ms", ex);
+      }
       throw new RunnerException("Execution failed", ex);
     }
   }
 
+  /**
+   * Set timeout; the process is killed if it runs longer
+   *
+   * @param  long timeout Milliseconds; 0 for none
+   * @return void
+   */
+  public void setTimeout(long timeout) {
+    this.timeout= timeout;
+  }
+
+  /**
+   * Get timeout
+   *
+   * @return long Milliseconds; 0 for none
+   */
+  public long getTimeout() {
+    return this.timeout;
+  }
+
+  /**
+   * Check whether the process was killed because it exceeded the timeout
+   *
+   * @return boolean
+   */
+  public synchronized boolean isTimedOut() {
+    return this.timedOut;
+  }
+
+  /**
+   * Kill the running process, if any; runners not yet started will not start
+   *
+   * @return void
+   */
+  public void destroy() {
+    ExecuteWatchdog watchdog;
+    synchronized (this) {
+      this.destroyed = true;
+      watchdog       = this.watchdog;
+    }
+    if (null != watchdog) watchdog.destroyProcess();
+  }
+
+  /**
+   * Check whether this runner was destroyed
+   *
+   * @return boolean
+   */
+  public synchronized boolean isDestroyed() {
+    return this.destroyed;
+  }
+
   /**
    * Execute command using the specified arguments
    *
@@ -196,6 +273,28 @@ public abstract class AbstractRunner {
     this.executeCommand(arguments, false);
   }
 
+  /**
+   * Add a listener to be notified of each line of output
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener listener
+   * @return void
+   */
+  public void addOutputListener(RunnerOutputListener listener) {
+    this.listeners.add(listener);
+  }
+
+  /**
+   * Notify listeners of a line of output
+   *
+   * @param  java.lang.String line
+   * @return void
+   */
+  protected void fireOutputLine(String line) {
+    for (RunnerOutputListener listener : this.listeners) {
+      listener.outputLine(line);
+    }
+  }
+
   /**
    * Get runner output
    *
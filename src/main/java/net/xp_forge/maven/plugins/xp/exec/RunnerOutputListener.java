@@ -0,0 +1,22 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.exec;
+
+/**
+ * Receives runner output line by line, as soon as it is produced
+ *
+ */
+public interface RunnerOutputListener {
+
+  /**
+   * Called for each line of runner output
+   *
+   * @param  java.lang.String line
+   * @return void
+   */
+  public void outputLine(String line);
+}
@@ -0,0 +1,59 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.exec.input.git;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.ArrayList;
+
+/**
+ * Runner input for git runner
+ *
+ */
+public class GitRunnerInput {
+  public String command;
+  public List<String> arguments = new ArrayList<String>();
+
+  /**
+   * Constructor
+   *
+   * @param  java.lang.String command
+   */
+  public GitRunnerInput(String command) {
+    this.command= command;
+  }
+
+  /**
+   * Add an argument
+   *
+   * @param  java.lang.String argument
+   * @return void
+   */
+  public void addArgument(String argument) {
+    this.arguments.add(argument);
+  }
+
+  /**
+   * Add a list of arguments
+   *
+   * @param  java.util.List<java.lang.String> arguments
+   * @return void
+   */
+  public void addArguments(List<String> arguments) {
+    this.arguments.addAll(arguments);
+  }
+
+  /**
+   * Add an array of arguments
+   *
+   * @param  java.lang.String[] arguments
+   * @return void
+   */
+  public void addArguments(String[] arguments) {
+    this.addArguments(Arrays.asList(arguments));
+  }
+}
@@ -6,6 +6,9 @@
  */
 package net.xp_forge.maven.plugins.xp.exec.input.php;
 
+import java.util.Map;
+import java.util.LinkedHashMap;
+
 /**
  * Usage: php [options] [-f] <file> [--] [args...]
  *    php [options] -r <code> [--] [args...]
@@ -51,4 +54,5 @@ package net.xp_forge.maven.plugins.xp.exec.input.php;
  */
 public class PhpRunnerInput {
   public String code;
+  public Map<String, String> settings= new LinkedHashMap<String, String>();
 }
@@ -9,7 +9,6 @@ package net.xp_forge.maven.plugins.xp.exec.input.xp;
 import java.io.File;
 import java.util.Set;
 import java.util.List;
-import java.util.ArrayList;
 
 import org.apache.maven.artifact.Artifact;
 
@@ -18,7 +17,7 @@ import org.apache.maven.artifact.Artifact;
  *
  */
 public class AbstractClasspathRunnerInput {
-  public List<String> classpaths;
+  public Classpath classpaths;
   public boolean verbose;
 
   /**
@@ -26,7 +25,7 @@ public class AbstractClasspathRunnerInput {
    *
    */
   public AbstractClasspathRunnerInput() {
-    this.classpaths = new ArrayList<String>();
+    this.classpaths = new Classpath();
     this.verbose    = false;
   }
 
@@ -51,17 +50,18 @@ public class AbstractClasspathRunnerInput {
    * @return void
    */
   public void addClasspath(Artifact artifact) {
-    if (null == artifact) return;
-
-    // Skip non-xar artifacts
-    if (!artifact.getType().equals("xar")) return;
+    this.classpaths.add(artifact);
+  }
 
-    // Add to classpath
-    if (null != artifact.getClassifier() && artifact.getClassifier().equals("patch")) {
-      this.addClasspath(artifact.getFile().getAbsolutePath(), true);
-    } else {
-      this.addClasspath(artifact.getFile(), false);
-    }
+  /**
+   * Setter for classpaths
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath classpath
+   * @return void
+   */
+  public void addClasspath(Classpath classpath) {
+    if (null == classpath) return;
+    this.classpaths.addAll(classpath);
   }
 
   /**
@@ -85,19 +85,7 @@ public class AbstractClasspathRunnerInput {
    * @return void
    */
   public void addClasspath(String classpath, boolean isPatch) {
-    if (null == classpath) return;
-
-    // Check classpath not added twice
-    for (String cp : this.classpaths) {
-      if (cp.equals(classpath)) return;
-    }
-
-    // Add to list
-    if (isPatch) {
-      this.classpaths.add(0, "!" + classpath);
-    } else {
-      this.classpaths.add(classpath);
-    }
+    this.classpaths.add(classpath, isPatch);
   }
 
   /**
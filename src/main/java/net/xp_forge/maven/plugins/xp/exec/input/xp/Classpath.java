@@ -0,0 +1,160 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.exec.input.xp;
+
+import java.io.File;
+import java.util.Set;
+import java.util.List;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.ArrayList;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * Ordered classpath
+ *
+ * Patch entries (prefixed with "!" when iterated) come first, the most recently added one
+ * leading; all other entries follow in insertion order. Duplicates are detected via a hash
+ * set, so building a classpath is linear in the number of entries
+ *
+ */
+public class Classpath implements Iterable<String> {
+  private List<String> patches;
+  private List<String> entries;
+  private Set<String> seen;
+
+  /**
+   * Constructor
+   *
+   */
+  public Classpath() {
+    this.patches = new ArrayList<String>();
+    this.entries = new ArrayList<String>();
+    this.seen    = new HashSet<String>();
+  }
+
+  /**
+   * Copy constructor
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath classpath
+   */
+  public Classpath(Classpath classpath) {
+    this.patches = new ArrayList<String>(classpath.patches);
+    this.entries = new ArrayList<String>(classpath.entries);
+    this.seen    = new HashSet<String>(classpath.seen);
+  }
+
+  /**
+   * Add an entry
+   *
+   * @param  java.lang.String classpath
+   * @param  boolean isPatch
+   * @return boolean false if already contained
+   */
+  public boolean add(String classpath, boolean isPatch) {
+    if (null == classpath || !this.seen.add(classpath)) return false;
+
+    if (isPatch) {
+      this.patches.add(classpath);
+    } else {
+      this.entries.add(classpath);
+    }
+    return true;
+  }
+
+  /**
+   * Add the specified xar artifact; artifacts with the "patch" classifier are patch entries.
+   * Non-xar artifacts and artifacts without a file are ignored
+   *
+   * @param  org.apache.maven.artifact.Artifact artifact
+   * @return boolean false if not added
+   */
+  public boolean add(Artifact artifact) {
+    if (null == artifact || !artifact.getType().equals("xar")) return false;
+
+    File file= artifact.getFile();
+    if (null != artifact.getClassifier() && artifact.getClassifier().equals("patch")) {
+      return null != file && this.add(file.getAbsolutePath(), true);
+    }
+    return null != file && file.exists() && this.add(file.getAbsolutePath(), false);
+  }
+
+  /**
+   * Add all entries of another classpath, keeping their order
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.Classpath classpath
+   * @return void
+   */
+  public void addAll(Classpath classpath) {
+    for (String patch : classpath.patches) {
+      this.add(patch, true);
+    }
+    for (String entry : classpath.entries) {
+      this.add(entry, false);
+    }
+  }
+
+  /**
+   * Check whether the specified entry is contained
+   *
+   * @param  java.lang.String classpath
+   * @return boolean
+   */
+  public boolean contains(String classpath) {
+    return this.seen.contains(classpath);
+  }
+
+  /**
+   * Number of entries
+   *
+   * @return int
+   */
+  public int size() {
+    return this.patches.size() + this.entries.size();
+  }
+
+  /**
+   * Check whether this classpath is empty
+   *
+   * @return boolean
+   */
+  public boolean isEmpty() {
+    return 0 == this.size();
+  }
+
+  /**
+   * Get all entries, patches first and prefixed with "!"
+   *
+   * @return java.util.List<java.lang.String>
+   */
+  public List<String> toList() {
+    List<String> retVal= new ArrayList<String>(this.size());
+    for (int i= this.patches.size() - 1; i >= 0; i--) {
+      retVal.add("!" + this.patches.get(i));
+    }
+    retVal.addAll(this.entries);
+    return retVal;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public Iterator<String> iterator() {
+    return this.toList().iterator();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  @Override
+  public String toString() {
+    return this.toList().toString();
+  }
+}
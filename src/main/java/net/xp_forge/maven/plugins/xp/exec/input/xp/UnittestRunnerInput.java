@@ -69,7 +69,7 @@ public class UnittestRunnerInput extends AbstractClasspathRunnerInput implements
     UnittestRunnerInput clone= new UnittestRunnerInput();
 
     // Copy fields
-    clone.classpaths = (List<String>)((ArrayList<String>)this.classpaths).clone();
+    clone.classpaths = new Classpath(this.classpaths);
     clone.verbose    = this.verbose;
     clone.arguments  = (List<String>)((ArrayList<String>)this.arguments).clone();
     clone.inifiles   = new ArrayList<File>();
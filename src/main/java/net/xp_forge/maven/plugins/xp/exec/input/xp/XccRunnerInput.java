@@ -7,7 +7,9 @@
 package net.xp_forge.maven.plugins.xp.exec.input.xp;
 
 import java.io.File;
+import java.util.Set;
 import java.util.List;
+import java.util.HashSet;
 import java.util.ArrayList;
 
 /**
@@ -66,6 +68,9 @@ public class XccRunnerInput extends AbstractClasspathRunnerInput {
   public File         outputdir;
   public List<File>   sources;
 
+  // Absolute paths of sources (to quickly check for duplicates)
+  private Set<String> sourcePaths;
+
   /**
    * Constructor
    *
@@ -77,6 +82,7 @@ public class XccRunnerInput extends AbstractClasspathRunnerInput {
     this.profiles    = new ArrayList<String>();
     this.outputdir   = null;
     this.sources     = new ArrayList<File>();
+    this.sourcePaths = new HashSet<String>();
   }
 
   /**
@@ -132,10 +138,7 @@ public class XccRunnerInput extends AbstractClasspathRunnerInput {
     if (!source.exists()) return;
 
     // Check source not added twice
-    String sourcePath= source.getAbsolutePath();
-    for (File src : this.sources) {
-      if (src.getAbsolutePath().equals(sourcePath)) return;
-    }
+    if (!this.sourcePaths.add(source.getAbsolutePath())) return;
 
     // Add to list
     this.sources.add(source);
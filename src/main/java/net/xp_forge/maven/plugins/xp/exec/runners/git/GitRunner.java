@@ -0,0 +1,55 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.exec.runners.git;
+
+import java.io.File;
+import java.util.List;
+import java.util.ArrayList;
+
+import net.xp_forge.maven.plugins.xp.exec.AbstractRunner;
+import net.xp_forge.maven.plugins.xp.exec.RunnerException;
+import net.xp_forge.maven.plugins.xp.exec.input.git.GitRunnerInput;
+
+/**
+ * Wrapper over "git" executable
+ *
+ */
+public class GitRunner extends AbstractRunner {
+  private GitRunnerInput input;
+
+  /**
+   * Constructor
+   *
+   * @param  java.io.File executable
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.git.GitRunnerInput input
+   */
+  public GitRunner(File executable, GitRunnerInput input) {
+    super(executable);
+    this.input= input;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void execute() throws RunnerException {
+
+    // Build arguments
+    List<String> arguments= new ArrayList<String>();
+
+    // Add git command
+    arguments.add(this.input.command);
+
+    // Add other arguments
+    for (String argument : this.input.arguments) {
+      arguments.add(argument);
+    }
+
+    // Execute command and capture output
+    this.executeCommand(arguments, true);
+  }
+}
@@ -7,6 +7,7 @@
 package net.xp_forge.maven.plugins.xp.exec.runners.php;
 
 import java.io.File;
+import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -44,17 +45,21 @@ public class PhpRunner extends AbstractRunner {
     // Build arguments
     List<String> arguments= new ArrayList<String>();
 
-    // Add code
-    if (null != this.input.code && !this.input.code.isEmpty()) {
-      arguments.add("-r");
-      arguments.add(this.input.code + ";");
+    // Add INI entries
+    for (Map.Entry<String, String> setting : this.input.settings.entrySet()) {
+      arguments.add("-d");
+      arguments.add(setting.getKey() + "=" + setting.getValue());
     }
 
-    // Check no arguments
-    if (arguments.isEmpty()) {
-      throw new RunnerException("No arguments specified");
+    // Check no code
+    if (null == this.input.code || this.input.code.isEmpty()) {
+      throw new RunnerException("No code specified");
     }
 
+    // Add code
+    arguments.add("-r");
+    arguments.add(this.input.code + ";");
+
     // Execute command and capture output
     this.executeCommand(arguments, true);
   }
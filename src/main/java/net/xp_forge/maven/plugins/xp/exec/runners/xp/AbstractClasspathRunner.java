@@ -33,11 +33,11 @@ public abstract class AbstractClasspathRunner extends AbstractRunner {
   /**
    * Set classpath via command line arguments
    *
-   * @param  java.util.List<java.lang.String> classpaths
+   * @param  java.lang.Iterable<java.lang.String> classpaths
    * @param  java.util.List<java.lang.String> arguments
    * @return void
    */
-  public void setClasspath(List<String> classpaths, List<String> arguments) {
+  public void setClasspath(Iterable<String> classpaths, List<String> arguments) {
     for (String classpath : classpaths) {
       arguments.add("-cp");
       arguments.add(classpath);
@@ -47,12 +47,12 @@ public abstract class AbstractClasspathRunner extends AbstractRunner {
   /**
    * Set classpath via [project.pth] file
    *
-   * @param  java.util.List<java.lang.String> classpaths
+   * @param  java.lang.Iterable<java.lang.String> classpaths
    * @param  java.io.File pthFile
    * @return void
    * @throws net.xp_forge.maven.plugins.xp.runners.RunnerException When cannot create project.pth file
    */
-  public void setClasspath(List<String> classpaths, File pthFile) throws RunnerException {
+  public void setClasspath(Iterable<String> classpaths, File pthFile) throws RunnerException {
     PthFile pth= new PthFile();
     pth.addEntries(classpaths);
 
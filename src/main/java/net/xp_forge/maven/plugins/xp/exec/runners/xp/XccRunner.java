@@ -46,25 +46,42 @@ public class XccRunner extends AbstractClasspathRunner {
     File pthFile= new File(this.getWorkingDirectory(), "project.pth");
     this.setClasspath(this.input.classpaths, pthFile);
 
+    // Add xcc arguments
+    arguments.addAll(XccRunner.getArguments(this.input));
+
+    // Execute command
+    this.executeCommand(arguments);
+  }
+
+  /**
+   * Build xcc command line arguments (except classpath) for the specified input
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput input
+   * @return java.util.List<java.lang.String>
+   * @throws net.xp_forge.maven.plugins.xp.runners.RunnerException When input is invalid
+   */
+  public static List<String> getArguments(XccRunnerInput input) throws RunnerException {
+    List<String> arguments= new ArrayList<String>();
+
     // Add verbose (-v)
-    if (this.input.verbose) arguments.add("-v");
+    if (input.verbose) arguments.add("-v");
 
     // Add sourcepath (-sp)
-    for (File sp : this.input.sourcepaths) {
+    for (File sp : input.sourcepaths) {
       arguments.add("-sp");
       arguments.add(sp.getAbsolutePath());
     }
 
     // Add emitter (-e)
-    if (null != this.input.emitter && 0 != this.input.emitter.trim().length()) {
+    if (null != input.emitter && 0 != input.emitter.trim().length()) {
       arguments.add("-e");
-      arguments.add(this.input.emitter);
+      arguments.add(input.emitter);
     }
 
     // Add profile (-p)
-    if (!this.input.profiles.isEmpty()) {
+    if (!input.profiles.isEmpty()) {
       StringBuffer profilesBuff= new StringBuffer();
-      Iterator it= this.input.profiles.iterator();
+      Iterator it= input.profiles.iterator();
       while (it.hasNext()) {
         profilesBuff.append((String)it.next());
         if (it.hasNext()) profilesBuff.append(",");
@@ -75,18 +92,17 @@ public class XccRunner extends AbstractClasspathRunner {
     }
 
     // Add output (-o)
-    if (null == this.input.outputdir) {
+    if (null == input.outputdir) {
       throw new RunnerException("xcc outputdir not set");
     }
     arguments.add("-o");
-    arguments.add(this.input.outputdir.getAbsolutePath());
+    arguments.add(input.outputdir.getAbsolutePath());
 
     // Add sources
-    for (File src : this.input.sources) {
+    for (File src : input.sources) {
       arguments.add(src.getAbsolutePath());
     }
 
-    // Execute command
-    this.executeCommand(arguments);
+    return arguments;
   }
 }
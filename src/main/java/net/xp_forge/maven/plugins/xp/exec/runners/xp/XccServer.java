@@ -0,0 +1,250 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.exec.runners.xp;
+
+import java.io.File;
+import java.io.Writer;
+import java.io.IOException;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.Map;
+import java.util.List;
+import java.util.Timer;
+import java.util.HashMap;
+import java.util.TimerTask;
+import java.util.ArrayList;
+
+import org.apache.maven.plugin.logging.Log;
+
+import net.xp_forge.maven.plugins.xp.util.ExecuteUtils;
+import net.xp_forge.maven.plugins.xp.exec.RunnerException;
+import net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener;
+import net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput;
+
+/**
+ * Long-running xcc compiler process
+ *
+ * The server is started once (per runners setup, project and Maven session) using the "xp"
+ * runner and the [XccServer.class.php] resource; compile requests are sent over its standard
+ * input as one line of tab-separated, UTF-8 encoded xcc arguments. The server answers with
+ * the compiler output followed by a "@@xcc-done {exitcode}" line
+ *
+ * The classpath of a request is registered by the server for that request only; patches
+ * ("!" prefix) keep their precedence as in [project.pth]
+ *
+ */
+public class XccServer {
+  public static final String CLASS_NAME    = "XccServer";
+  public static final String RESOURCE_NAME = "/net/xp_forge/xcc/XccServer.class.php";
+  public static final String DONE_MARKER   = "@@xcc-done ";
+  public static final String CHARSET       = "UTF-8";
+
+  private static final Map<String, XccServer> instances= new HashMap<String, XccServer>();
+
+  private volatile Process process;
+  private Writer in;
+  private BufferedReader out;
+  private long timeout;
+  private boolean timedOut;
+
+  /**
+   * Constructor
+   *
+   * @param  java.lang.Process process
+   * @throws java.io.IOException
+   */
+  private XccServer(Process process) throws IOException {
+    this.process = process;
+    this.in      = new OutputStreamWriter(process.getOutputStream(), CHARSET);
+    this.out     = new BufferedReader(new InputStreamReader(process.getInputStream(), CHARSET));
+  }
+
+  /**
+   * Set timeout for a single compile request; the server is killed if it takes longer
+   *
+   * @param  long timeout Milliseconds; 0 for none
+   * @return void
+   */
+  public synchronized void setTimeout(long timeout) {
+    this.timeout= timeout;
+  }
+
+  /**
+   * Get the server for the specified key; starts it if not already running
+   *
+   * @param  java.lang.String key Identifies the server (runners setup, project and Maven session)
+   * @param  java.io.File executable The "xp" runner
+   * @param  java.io.File workingDirectory Directory containing the [XccServer.class.php] class
+   * @param  java.util.Map<java.lang.String, java.lang.String> environment
+   * @param  org.apache.maven.plugin.logging.Log log
+   * @return net.xp_forge.maven.plugins.xp.exec.runners.xp.XccServer
+   * @throws net.xp_forge.maven.plugins.xp.exec.RunnerException When the server cannot be started
+   */
+  public static XccServer getInstance(String key, File executable, File workingDirectory, Map<String, String> environment, Log log) throws RunnerException {
+    synchronized (XccServer.instances) {
+      XccServer server= XccServer.instances.get(key);
+      if (null != server) return server;
+
+      log.info("Starting xcc compile server [" + executable + " " + XccServer.CLASS_NAME + "]");
+      ProcessBuilder builder= new ProcessBuilder(executable.getAbsolutePath(), XccServer.CLASS_NAME);
+      builder.directory(workingDirectory);
+      builder.environment().putAll(environment);
+      builder.redirectErrorStream(true);
+
+      try {
+        server= new XccServer(builder.start());
+      } catch (IOException ex) {
+        throw new RunnerException("Cannot start xcc compile server", ex);
+      }
+
+      // Kill server when Maven exits; without taking the lock, a compile may be in progress
+      final XccServer shutdown= server;
+      Runtime.getRuntime().addShutdownHook(new Thread() {
+        public void run() {
+          shutdown.kill();
+        }
+      });
+
+      XccServer.instances.put(key, server);
+      return server;
+    }
+  }
+
+  /**
+   * Compile using the specified input; compiler output is sent to the specified log
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput input
+   * @param  org.apache.maven.plugin.logging.Log log
+   * @return void
+   * @throws net.xp_forge.maven.plugins.xp.exec.RunnerException When compilation failed
+   */
+  public void compile(XccRunnerInput input, Log log) throws RunnerException {
+    this.compile(input, log, null);
+  }
+
+  /**
+   * Compile using the specified input; compiler output is sent to the specified log and listener
+   *
+   * @param  net.xp_forge.maven.plugins.xp.exec.input.xp.XccRunnerInput input
+   * @param  org.apache.maven.plugin.logging.Log log
+   * @param  net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener listener null for none
+   * @return void
+   * @throws net.xp_forge.maven.plugins.xp.exec.RunnerException When compilation failed
+   */
+  public synchronized void compile(XccRunnerInput input, Log log, RunnerOutputListener listener) throws RunnerException {
+
+    // Classpath is passed via leading -cp pairs, as [project.pth] is only read on startup;
+    // the server registers them itself, keeping the "!" prefix of patches
+    List<String> arguments= new ArrayList<String>();
+    for (String classpath : input.classpaths) {
+      arguments.add("-cp");
+      arguments.add(classpath);
+    }
+    arguments.addAll(XccRunner.getArguments(input));
+
+    StringBuilder request= new StringBuilder();
+    for (String argument : arguments) {
+      if (request.length() > 0) request.append('\t');
+      request.append(argument);
+    }
+    log.debug("Compile request   [" + arguments + "]");
+
+    // Kill server when the request takes too long
+    Timer watchdog= null;
+    if (this.timeout > 0) {
+      watchdog= new Timer("xcc-server-watchdog", true);
+      watchdog.schedule(new TimerTask() {
+        public void run() {
+          synchronized (XccServer.this.process) {
+            XccServer.this.timedOut= true;
+          }
+          XccServer.this.process.destroy();
+        }
+      }, this.timeout);
+    }
+
+    // Send request, then pass output through until the server is done
+    String line= null;
+    try {
+      this.in.write(request.toString());
+      this.in.write('\n');
+      this.in.flush();
+
+      while (null != (line= this.out.readLine())) {
+        if (line.startsWith(XccServer.DONE_MARKER)) break;
+        ExecuteUtils.logLine(log, line);
+        if (null != listener) listener.outputLine(line);
+      }
+    } catch (IOException ex) {
+      this.stop();
+      if (this.isTimedOut()) {
+        throw new RunnerException("xcc compile server timed out after " + this.timeout + " ms", ex);
+      }
+      throw new RunnerException("Communication with xcc compile server failed", ex);
+    } finally {
+      if (null != watchdog) watchdog.cancel();
+    }
+
+    // Server went away
+    if (null == line) {
+      this.stop();
+      if (this.isTimedOut()) {
+        throw new RunnerException("xcc compile server timed out after " + this.timeout + " ms");
+      }
+      throw new RunnerException("xcc compile server terminated unexpectedly");
+    }
+
+    // Check exit code
+    String exitCode= line.substring(XccServer.DONE_MARKER.length()).trim();
+    log.debug("Return code       [" + exitCode + "]");
+    if (!exitCode.equals("0")) {
+      throw new RunnerException("Compilation failed; xcc returned [" + exitCode + "]");
+    }
+  }
+
+  /**
+   * Check whether the server was killed after exceeding the timeout
+   *
+   * @return boolean
+   */
+  private boolean isTimedOut() {
+    synchronized (this.process) {
+      return this.timedOut;
+    }
+  }
+
+  /**
+   * Kill the server process. Does not wait for a compile request in progress, which then
+   * fails as the server's output ends
+   *
+   * @return void
+   */
+  public void kill() {
+    this.process.destroy();
+  }
+
+  /**
+   * Stop the server
+   *
+   * @return void
+   */
+  public synchronized void stop() {
+    synchronized (XccServer.instances) {
+      XccServer.instances.values().remove(this);
+    }
+
+    // An empty line tells the server to shut down
+    try {
+      this.in.write('\n');
+      this.in.close();
+    } catch (IOException ignored) {
+      // Already gone
+    }
+    this.process.destroy();
+  }
+}
@@ -0,0 +1,352 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.io;
+
+import java.io.File;
+import java.io.Reader;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
+
+import net.xp_forge.maven.plugins.xp.util.FileUtils;
+
+/**
+ * Simple class to read/write dependency graph files for [*.xp] sources
+ *
+ * Each line holds one source: path, fully qualified class name and the classes
+ * it references, all separated by tabs. References are collected from the
+ * package declaration, the import statements, fully qualified names and
+ * capitalized identifiers (which may be classes in the same package); they are
+ * an over-approximation, so no dependent is ever missed
+ *
+ */
+public class DependencyGraph {
+  private static final Pattern COMMENTS  = Pattern.compile("/\\*.*?\\*/|//[^\\n]*|\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'", Pattern.DOTALL);
+  private static final Pattern PACKAGE   = Pattern.compile("\\bpackage\\s+([\\w.]+)\\s*;");
+  private static final Pattern IMPORT    = Pattern.compile("\\bimport\\s+(static\\s+|native\\s+)?([\\w.]+(\\.\\*)?)\\s*;");
+  private static final Pattern QUALIFIED = Pattern.compile("\\b(?:[a-z_]\\w*\\.)+[A-Z]\\w*\\b");
+  private static final Pattern SIMPLE    = Pattern.compile("(?<![\\w.$])[A-Z]\\w*\\b");
+
+  private Map<String, Node> nodes;
+  private String comment;
+
+  /**
+   * Constructor
+   *
+   */
+  public DependencyGraph() {
+    this.nodes= new TreeMap<String, Node>();
+  }
+
+  /**
+   * Set file comment
+   *
+   * @param  java.lang.String comment
+   * @return void
+   */
+  public void setComment(String comment) {
+    this.comment= comment;
+  }
+
+  /**
+   * Check whether the specified source is part of the graph
+   *
+   * @param  java.lang.String path
+   * @return boolean
+   */
+  public boolean contains(String path) {
+    return this.nodes.containsKey(path);
+  }
+
+  /**
+   * Remove the specified source from the graph
+   *
+   * @param  java.lang.String path
+   * @return void
+   */
+  public void remove(String path) {
+    this.nodes.remove(path);
+  }
+
+  /**
+   * Get all sources in the graph
+   *
+   * @return java.util.Set<java.lang.String>
+   */
+  public Set<String> paths() {
+    return this.nodes.keySet();
+  }
+
+  /**
+   * Parse the specified source and add (or replace) it in the graph
+   *
+   * @param  java.io.File source
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void add(File source) throws IOException {
+    this.add(source, (String)null);
+  }
+
+  /**
+   * Parse the specified source and add (or replace) it in the graph. Sources without a package
+   * declaration (e.g. [*.class.php] files) get the package derived from their location inside
+   * the specified source root
+   *
+   * @param  java.io.File source
+   * @param  java.io.File root Source root
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void add(File source, File root) throws IOException {
+    String packageName = null;
+    String relative    = FileUtils.getRelativePath(source.getParentFile(), root);
+    if (null != relative) packageName= relative.replace(File.separatorChar, '.');
+    this.add(source, packageName);
+  }
+
+  /**
+   * Get source of the specified class
+   *
+   * @param  java.lang.String className Fully qualified class name
+   * @return java.lang.String null if the class is not part of the graph
+   */
+  public String getPath(String className) {
+    for (Map.Entry<String, Node> entry : this.nodes.entrySet()) {
+      if (entry.getValue().className.equals(className)) return entry.getKey();
+    }
+    return null;
+  }
+
+  /**
+   * Parse the specified source and add (or replace) it in the graph
+   *
+   * @param  java.io.File source
+   * @param  java.lang.String defaultPackage Package if the source declares none; null for none
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void add(File source, String defaultPackage) throws IOException {
+    String code= DependencyGraph.getContents(source);
+
+    // Strip comments; strings are matched as well so "//" inside them is left alone, and are
+    // kept as they may contain class names, e.g. XPClass::forName('util.Date')
+    StringBuffer stripped = new StringBuffer();
+    Matcher matcher       = COMMENTS.matcher(code);
+    while (matcher.find()) {
+      matcher.appendReplacement(stripped, matcher.group().startsWith("/") ? " " : Matcher.quoteReplacement(matcher.group()));
+    }
+    matcher.appendTail(stripped);
+    code= stripped.toString();
+
+    // Class name: package + file name
+    String name = source.getName();
+    int dot     = name.indexOf('.');
+    if (-1 != dot) name= name.substring(0, dot);
+
+    String packageName= null == defaultPackage ? "" : defaultPackage;
+    matcher= PACKAGE.matcher(code);
+    if (matcher.find()) packageName= matcher.group(1);
+
+    Node node= new Node(packageName.isEmpty() ? name : packageName + "." + name);
+
+    // Imports; static imports reference the class, native imports are not classes
+    matcher= IMPORT.matcher(code);
+    while (matcher.find()) {
+      String modifier  = null == matcher.group(1) ? "" : matcher.group(1).trim();
+      String reference = matcher.group(2);
+      if (modifier.equals("native")) continue;
+      if (modifier.equals("static") && !reference.endsWith(".*")) {
+        reference= reference.substring(0, Math.max(0, reference.lastIndexOf('.')));
+      }
+      node.references.add(reference);
+    }
+
+    // Fully qualified class names used inline
+    matcher= QUALIFIED.matcher(code);
+    while (matcher.find()) {
+      node.references.add(matcher.group());
+    }
+
+    // Capitalized identifiers; may be classes from the same package
+    matcher= SIMPLE.matcher(code);
+    while (matcher.find()) {
+      node.references.add(packageName.isEmpty() ? matcher.group() : packageName + "." + matcher.group());
+    }
+    node.references.remove(node.className);
+
+    this.nodes.put(source.getAbsolutePath(), node);
+  }
+
+  /**
+   * Get all sources depending, directly or transitively, on the specified ones. The specified
+   * sources themselves are not part of the result
+   *
+   * @param  java.util.Collection<java.lang.String> paths
+   * @return java.util.Set<java.lang.String>
+   */
+  public Set<String> getDependents(Collection<String> paths) {
+
+    // Reverse edges: referenced class or package wildcard => referencing sources
+    Map<String, List<String>> reverse= new HashMap<String, List<String>>();
+    for (Map.Entry<String, Node> entry : this.nodes.entrySet()) {
+      for (String reference : entry.getValue().references) {
+        List<String> referencing= reverse.get(reference);
+        if (null == referencing) {
+          referencing= new ArrayList<String>();
+          reverse.put(reference, referencing);
+        }
+        referencing.add(entry.getKey());
+      }
+    }
+
+    // Walk graph
+    Set<String> visited    = new HashSet<String>(paths);
+    List<String> queue     = new ArrayList<String>(paths);
+    Set<String> dependents = new TreeSet<String>();
+    while (!queue.isEmpty()) {
+      Node node= this.nodes.get(queue.remove(queue.size() - 1));
+      if (null == node) continue;
+
+      String packageName= node.className.lastIndexOf('.') > 0 ? node.className.substring(0, node.className.lastIndexOf('.')) : "";
+      for (String key : new String[] { node.className, packageName + ".*" }) {
+        List<String> referencing= reverse.get(key);
+        if (null == referencing) continue;
+
+        for (String path : referencing) {
+          if (!visited.add(path)) continue;
+          dependents.add(path);
+          queue.add(path);
+        }
+      }
+    }
+    return dependents;
+  }
+
+  /**
+   * Load graph from the specified file. A missing file results in an empty graph
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public void load(File file) throws IOException {
+    this.nodes.clear();
+    if (!file.exists()) return;
+
+    BufferedReader in= new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      String line;
+      while (null != (line= in.readLine())) {
+        if (0 == line.length() || line.startsWith("#")) continue;
+
+        // Entry: path, class name, references...
+        String[] parts= line.split("\t");
+        if (parts.length < 2) {
+          throw new IOException("Malformed line in [" + file + "]: " + line);
+        }
+
+        Node node= new Node(parts[1]);
+        for (int i= 2; i < parts.length; i++) {
+          node.references.add(parts[i]);
+        }
+        this.nodes.put(parts[0], node);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Dumps graph to specified file
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void dump(File file) throws IOException {
+    File parent= file.getParentFile();
+    if (null != parent && !parent.exists()) {
+      parent.mkdirs();
+    }
+
+    PrintStream out= new PrintStream(file, "UTF-8");
+
+    // Comment
+    if (null != this.comment) {
+      out.printf("# %s", this.comment);
+      out.println();
+    }
+
+    // Write entries
+    for (Map.Entry<String, Node> entry : this.nodes.entrySet()) {
+      out.printf("%s\t%s", entry.getKey(), entry.getValue().className);
+      for (String reference : entry.getValue().references) {
+        out.printf("\t%s", reference);
+      }
+      out.println();
+    }
+
+    // Close stream
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Read file contents
+   *
+   * @param  java.io.File file
+   * @return java.lang.String
+   * @throws java.io.IOException
+   */
+  private static String getContents(File file) throws IOException {
+    StringBuilder sb = new StringBuilder((int)file.length());
+    Reader in        = new InputStreamReader(new FileInputStream(file), "UTF-8");
+    try {
+      char[] buffer= new char[8192];
+      int charsRead;
+      while (-1 != (charsRead= in.read(buffer))) {
+        sb.append(buffer, 0, charsRead);
+      }
+    } finally {
+      in.close();
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Graph node: a class and the classes it references
+   *
+   */
+  private static class Node {
+    public String className;
+    public Set<String> references;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String className
+     */
+    public Node(String className) {
+      this.className  = className;
+      this.references = new TreeSet<String>();
+    }
+  }
+}
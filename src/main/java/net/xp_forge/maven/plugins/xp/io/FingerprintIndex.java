@@ -0,0 +1,256 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.io;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.ArrayList;
+
+/**
+ * Simple class to read/write fingerprint index files
+ *
+ * Each line holds one entry: path, size, last modified time, checksum and
+ * the files generated from it, all separated by tabs. An optional signature
+ * line (starting with "@") records the settings the index was built with
+ *
+ */
+public class FingerprintIndex {
+  private Map<String, Fingerprint> entries;
+  private String signature;
+  private String comment;
+
+  /**
+   * Constructor
+   *
+   */
+  public FingerprintIndex() {
+    this.entries= new TreeMap<String, Fingerprint>();
+  }
+
+  /**
+   * Set file comment
+   *
+   * @param  java.lang.String comment
+   * @return void
+   */
+  public void setComment(String comment) {
+    this.comment= comment;
+  }
+
+  /**
+   * Set signature (settings this index was built with)
+   *
+   * @param  java.lang.String signature
+   * @return void
+   */
+  public void setSignature(String signature) {
+    this.signature= signature;
+  }
+
+  /**
+   * Get signature
+   *
+   * @return java.lang.String null if no signature was recorded
+   */
+  public String getSignature() {
+    return this.signature;
+  }
+
+  /**
+   * Get fingerprint for the specified path
+   *
+   * @param  java.lang.String path
+   * @return net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint null if not indexed
+   */
+  public Fingerprint get(String path) {
+    return this.entries.get(path);
+  }
+
+  /**
+   * Add (or replace) a fingerprint
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint fingerprint
+   * @return void
+   */
+  public void put(Fingerprint fingerprint) {
+    this.entries.put(fingerprint.path, fingerprint);
+  }
+
+  /**
+   * Remove fingerprint for the specified path
+   *
+   * @param  java.lang.String path
+   * @return net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint null if not indexed
+   */
+  public Fingerprint remove(String path) {
+    return this.entries.remove(path);
+  }
+
+  /**
+   * Get all indexed paths
+   *
+   * @return java.util.Set<java.lang.String>
+   */
+  public Set<String> paths() {
+    return this.entries.keySet();
+  }
+
+  /**
+   * Remove all entries
+   *
+   * @return void
+   */
+  public void clear() {
+    this.entries.clear();
+  }
+
+  /**
+   * Load entries from the specified file. A missing file results in an empty index
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public void load(File file) throws IOException {
+    this.entries.clear();
+    this.signature= null;
+    if (!file.exists()) return;
+
+    BufferedReader in= new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+    try {
+      String line;
+      while (null != (line= in.readLine())) {
+        if (0 == line.length() || line.startsWith("#")) continue;
+
+        // Signature
+        if (line.startsWith("@")) {
+          this.signature= line.substring(1);
+          continue;
+        }
+
+        // Entry: path, size, lastModified, checksum, outputs...
+        String[] parts= line.split("\t");
+        if (parts.length < 4) {
+          throw new IOException("Malformed line in [" + file + "]: " + line);
+        }
+
+        Fingerprint fingerprint= new Fingerprint(parts[0]);
+        try {
+          fingerprint.size         = Long.parseLong(parts[1]);
+          fingerprint.lastModified = Long.parseLong(parts[2]);
+        } catch (NumberFormatException ex) {
+          throw new IOException("Malformed line in [" + file + "]: " + line);
+        }
+        fingerprint.checksum= parts[3].length() > 0 ? parts[3] : null;
+        for (int i= 4; i < parts.length; i++) {
+          fingerprint.outputs.add(parts[i]);
+        }
+        this.put(fingerprint);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Dumps entries to specified file
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void dump(File file) throws IOException {
+    File parent= file.getParentFile();
+    if (null != parent && !parent.exists()) {
+      parent.mkdirs();
+    }
+
+    PrintStream out= new PrintStream(file, "UTF-8");
+
+    // Comment
+    if (null != this.comment) {
+      out.printf("# %s", this.comment);
+      out.println();
+    }
+
+    // Signature
+    if (null != this.signature) {
+      out.printf("@%s", this.signature);
+      out.println();
+    }
+
+    // Write entries
+    for (Fingerprint fingerprint : this.entries.values()) {
+      out.printf(
+        "%s\t%d\t%d\t%s",
+        fingerprint.path,
+        fingerprint.size,
+        fingerprint.lastModified,
+        null == fingerprint.checksum ? "" : fingerprint.checksum
+      );
+      for (String output : fingerprint.outputs) {
+        out.printf("\t%s", output);
+      }
+      out.println();
+    }
+
+    // Close stream
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Fingerprint of a single file
+   *
+   */
+  public static class Fingerprint {
+    public String path;
+    public long size;
+    public long lastModified;
+    public String checksum;
+    public List<String> outputs;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String path
+     */
+    public Fingerprint(String path) {
+      this.path    = path;
+      this.outputs = new ArrayList<String>();
+    }
+
+    /**
+     * Constructor
+     *
+     * @param  java.io.File file
+     */
+    public Fingerprint(File file) {
+      this(file.getAbsolutePath());
+      this.size         = file.length();
+      this.lastModified = file.lastModified();
+    }
+
+    /**
+     * Check whether size and last modified time still match the specified file
+     *
+     * @param  java.io.File file
+     * @return boolean
+     */
+    public boolean matches(File file) {
+      return file.length() == this.size && file.lastModified() == this.lastModified;
+    }
+  }
+}
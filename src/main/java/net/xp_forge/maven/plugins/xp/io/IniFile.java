@@ -15,11 +15,12 @@ import java.io.FileInputStream;
 import java.util.Map;
 import java.util.List;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.TreeSet;
 import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.Properties;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 
 /**
  * Simple class to read/write ini files
@@ -38,7 +39,7 @@ public class IniFile {
    */
   public IniFile() {
     this.globalProperties= new Properties();
-    this.properties= new HashMap<String, Properties>();
+    this.properties= new LinkedHashMap<String, Properties>();
   }
 
   /**
@@ -371,8 +372,9 @@ public class IniFile {
       out.println();
     }
 
-    // Global properties
-    Iterator<String> props= this.properties();
+    // Global properties; sections are kept in the order they were added, properties are
+    // sorted, so the same contents always result in the same file
+    Iterator<String> props= IniFile.sorted(this.properties());
     while (props.hasNext()) {
       String name= props.next();
       for (String val : this.unpackStringToList(this.getProperty(name))) {
@@ -388,7 +390,7 @@ public class IniFile {
       out.println();
       out.printf("[%s]", section);
       out.println();
-      props= this.properties(section);
+      props= IniFile.sorted(this.properties(section));
       while (props.hasNext()) {
         String name= props.next();
         for (String val : this.unpackStringToList(this.getProperty(section, name))) {
@@ -403,6 +405,20 @@ public class IniFile {
     out.close();
   }
 
+  /**
+   * Sort names
+   *
+   * @param  java.util.Iterator<java.lang.String> names
+   * @return java.util.Iterator<java.lang.String>
+   */
+  private static Iterator<String> sorted(Iterator<String> names) {
+    TreeSet<String> retVal= new TreeSet<String>();
+    while (names.hasNext()) {
+      retVal.add(names.next());
+    }
+    return retVal.iterator();
+  }
+
   private static String dumpEscape(String s) {
     return s;
 //    return s.replaceAll("\\\\", "\\\\\\\\")
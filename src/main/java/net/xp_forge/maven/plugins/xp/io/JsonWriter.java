@@ -0,0 +1,281 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.io;
+
+import java.io.File;
+import java.io.Writer;
+import java.io.IOException;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.util.Locale;
+import java.util.LinkedList;
+
+/**
+ * Simple streaming JSON writer, used for build reports
+ *
+ * Usage:
+ *   JsonWriter json= new JsonWriter(file);
+ *   json.beginObject().name("files").value(12).name("slowest").beginArray()...
+ *   json.close();
+ *
+ */
+public class JsonWriter {
+  private Writer out;
+  private LinkedList<Boolean> first;
+  private boolean afterName;
+
+  /**
+   * Constructor
+   *
+   * @param  java.io.Writer out
+   */
+  public JsonWriter(Writer out) {
+    this.out   = out;
+    this.first = new LinkedList<Boolean>();
+  }
+
+  /**
+   * Constructor; writes UTF-8 encoded to the specified file (parent directories are created)
+   *
+   * @param  java.io.File file
+   * @throws java.io.IOException
+   */
+  public JsonWriter(File file) throws IOException {
+    this(JsonWriter.openFile(file));
+  }
+
+  /**
+   * Begin an object
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter beginObject() throws IOException {
+    return this.begin('{');
+  }
+
+  /**
+   * End an object
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter endObject() throws IOException {
+    return this.end('}');
+  }
+
+  /**
+   * Begin an array
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter beginArray() throws IOException {
+    return this.begin('[');
+  }
+
+  /**
+   * End an array
+   *
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter endArray() throws IOException {
+    return this.end(']');
+  }
+
+  /**
+   * Write an object member name; must be followed by a value, object or array
+   *
+   * @param  java.lang.String name
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter name(String name) throws IOException {
+    this.separate();
+    this.string(name);
+    this.out.write(": ");
+    this.afterName= true;
+    return this;
+  }
+
+  /**
+   * Write a string value
+   *
+   * @param  java.lang.String value null is written as null
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter value(String value) throws IOException {
+    this.separate();
+    if (null == value) {
+      this.out.write("null");
+    } else {
+      this.string(value);
+    }
+    return this;
+  }
+
+  /**
+   * Write an integer value
+   *
+   * @param  long value
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter value(long value) throws IOException {
+    this.separate();
+    this.out.write(Long.toString(value));
+    return this;
+  }
+
+  /**
+   * Write a floating point value, rounded to three decimals
+   *
+   * @param  double value
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter value(double value) throws IOException {
+    this.separate();
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      this.out.write("null");
+    } else {
+      this.out.write(String.format(Locale.US, "%.3f", value));
+    }
+    return this;
+  }
+
+  /**
+   * Write a boolean value
+   *
+   * @param  boolean value
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  public JsonWriter value(boolean value) throws IOException {
+    this.separate();
+    this.out.write(value ? "true" : "false");
+    return this;
+  }
+
+  /**
+   * Flush and close underlying writer
+   *
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void close() throws IOException {
+    this.out.write("\n");
+    this.out.flush();
+    this.out.close();
+  }
+
+  /**
+   * Begin an object or array
+   *
+   * @param  char c
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  private JsonWriter begin(char c) throws IOException {
+    this.separate();
+    this.out.write(c);
+    this.first.push(Boolean.TRUE);
+    return this;
+  }
+
+  /**
+   * End an object or array
+   *
+   * @param  char c
+   * @return net.xp_forge.maven.plugins.xp.io.JsonWriter this
+   * @throws java.io.IOException
+   */
+  private JsonWriter end(char c) throws IOException {
+    boolean empty= this.first.pop();
+    if (!empty) this.indent();
+    this.out.write(c);
+    return this;
+  }
+
+  /**
+   * Write separator and indentation before the next element
+   *
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void separate() throws IOException {
+    if (this.afterName) {
+      this.afterName= false;
+      return;
+    }
+    if (this.first.isEmpty()) return;
+
+    if (!this.first.peek()) this.out.write(',');
+    this.first.set(0, Boolean.FALSE);
+    this.indent();
+  }
+
+  /**
+   * Write newline and indentation for the current nesting level
+   *
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void indent() throws IOException {
+    this.out.write('\n');
+    for (int i= 0; i < this.first.size(); i++) {
+      this.out.write("  ");
+    }
+  }
+
+  /**
+   * Write a quoted and escaped string
+   *
+   * @param  java.lang.String str
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void string(String str) throws IOException {
+    StringBuilder sb= new StringBuilder(str.length() + 2);
+    sb.append('"');
+    for (int i= 0; i < str.length(); i++) {
+      char c= str.charAt(i);
+      switch (c) {
+        case '"':  sb.append("\\\""); break;
+        case '\\': sb.append("\\\\"); break;
+        case '\n': sb.append("\\n"); break;
+        case '\r': sb.append("\\r"); break;
+        case '\t': sb.append("\\t"); break;
+        default:
+          if (c < 0x20) {
+            sb.append(String.format("\\u%04x", (int)c));
+          } else {
+            sb.append(c);
+          }
+      }
+    }
+    sb.append('"');
+    this.out.write(sb.toString());
+  }
+
+  /**
+   * Open the specified file for writing
+   *
+   * @param  java.io.File file
+   * @return java.io.Writer
+   * @throws java.io.IOException
+   */
+  private static Writer openFile(File file) throws IOException {
+    File parent= file.getParentFile();
+    if (null != parent && !parent.exists()) {
+      parent.mkdirs();
+    }
+    return new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+  }
+}
@@ -82,10 +82,10 @@ public class PthFile {
   /**
    * Add new entries to this pth file
    *
-   * @param  java.util.List<java.lang.String> entries
+   * @param  java.lang.Iterable<java.lang.String> entries
    * @return void
    */
-  public void addEntries(List<String> entries) {
+  public void addEntries(Iterable<String> entries) {
     for (String entry : entries) {
       this.entries.add(entry);
     }
@@ -0,0 +1,199 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.io;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.io.FileInputStream;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.Collections;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import net.xp_forge.maven.plugins.xp.util.FileUtils;
+
+/**
+ * Simple class to read/write stamp files
+ *
+ * A stamp file records a digest of all inputs of a build step; if the digest calculated
+ * for the current inputs equals the recorded one, the step can be skipped
+ *
+ */
+public class StampFile {
+  private File file;
+  private MessageDigest digest;
+  private String comment;
+
+  /**
+   * Constructor
+   *
+   * @param  java.io.File file
+   */
+  public StampFile(File file) {
+    this.file= file;
+    try {
+      this.digest= MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException("MD5 not supported", ex);
+    }
+  }
+
+  /**
+   * Get stamp file
+   *
+   * @return java.io.File
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Set file comment
+   *
+   * @param  java.lang.String comment
+   * @return void
+   */
+  public void setComment(String comment) {
+    this.comment= comment;
+  }
+
+  /**
+   * Add a named value to the digest
+   *
+   * @param  java.lang.String name
+   * @param  java.lang.Object value
+   * @return void
+   */
+  public void add(String name, Object value) {
+    try {
+      this.digest.update((name + "=" + value + "\n").getBytes("UTF-8"));
+    } catch (UnsupportedEncodingException ex) {
+      throw new IllegalStateException("UTF-8 not supported", ex);
+    }
+  }
+
+  /**
+   * Add a file to the digest: path, size and last modified time
+   *
+   * @param  java.io.File file
+   * @return void
+   */
+  public void addFile(File file) {
+    this.add("file", file.getAbsolutePath() + ":" + file.length() + ":" + file.lastModified());
+  }
+
+  /**
+   * Add a file to the digest: path and checksum of its contents
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addChecksum(File file) throws IOException {
+    this.add("checksum", file.getAbsolutePath() + ":" + (file.isFile() ? FileUtils.getChecksum(file) : ""));
+  }
+
+  /**
+   * Add all files inside the specified directory (path, size and last modified time)
+   *
+   * @param  java.io.File directory
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void addDirectory(File directory) throws IOException {
+    List<File> files= FileUtils.listFiles(directory, null);
+    Collections.sort(files);
+
+    this.add("directory", directory.getAbsolutePath());
+    for (File file : files) {
+      this.addFile(file);
+    }
+  }
+
+  /**
+   * Get digest of all inputs added so far
+   *
+   * @return java.lang.String
+   */
+  public String getDigest() {
+    try {
+      return FileUtils.toHex(((MessageDigest)this.digest.clone()).digest());
+    } catch (CloneNotSupportedException ex) {
+      throw new IllegalStateException("Cannot clone digest", ex);
+    }
+  }
+
+  /**
+   * Get digest recorded in the stamp file
+   *
+   * @return java.lang.String null if the stamp file does not exist
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public String getRecordedDigest() throws IOException {
+    if (!this.file.exists()) return null;
+
+    BufferedReader in= new BufferedReader(new InputStreamReader(new FileInputStream(this.file), "UTF-8"));
+    try {
+      String line;
+      while (null != (line= in.readLine())) {
+        if (0 == line.length() || line.startsWith("#")) continue;
+        return line.trim();
+      }
+      return null;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Check whether the recorded digest equals the digest of the current inputs
+   *
+   * @return boolean
+   */
+  public boolean isUpToDate() {
+    try {
+      return this.getDigest().equals(this.getRecordedDigest());
+    } catch (IOException ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Record the digest of the current inputs
+   *
+   * @return void
+   * @throws java.io.IOException
+   */
+  public void dump() throws IOException {
+    File parent= this.file.getParentFile();
+    if (null != parent && !parent.exists()) {
+      parent.mkdirs();
+    }
+
+    PrintStream out= new PrintStream(this.file, "UTF-8");
+    if (null != this.comment) {
+      out.printf("# %s", this.comment);
+      out.println();
+    }
+    out.println(this.getDigest());
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Remove the stamp file
+   *
+   * @return void
+   */
+  public void delete() {
+    this.file.delete();
+  }
+}
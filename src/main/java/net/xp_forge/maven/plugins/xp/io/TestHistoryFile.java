@@ -0,0 +1,337 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.List;
+import java.util.Locale;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Test history: wall-clock time of the last run of each unittest [*.ini] file, and how
+ * often it ran, failed and passed only after being retried ("flaky")
+ *
+ * Stored as ini file with one section per [*.ini] file, named after its path relative to
+ * the project base directory (using forward slashes, so the file can be shared between
+ * machines):
+ *
+ *   [src/test/config/unittest/core.ini]
+ *   duration=12345
+ *   runs=40
+ *   failures=1
+ *   flaky=2
+ *   flakiness=0.050
+ *
+ */
+public class TestHistoryFile {
+  private File file;
+  private File basedir;
+  private IniFile ini;
+  private Map<String, Long> updates;
+  private Map<String, int[]> outcomes;
+
+  /**
+   * Constructor
+   *
+   * @param  java.io.File file
+   * @param  java.io.File basedir Project base directory
+   */
+  public TestHistoryFile(File file, File basedir) {
+    this.file     = file;
+    this.basedir  = basedir;
+    this.ini      = new IniFile();
+    this.updates  = new HashMap<String, Long>();
+    this.outcomes = new HashMap<String, int[]>();
+  }
+
+  /**
+   * Get history file
+   *
+   * @return java.io.File
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Load history. A missing file results in an empty history
+   *
+   * @return void
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public void load() throws IOException {
+    this.ini= new IniFile();
+    if (this.file.exists()) this.ini.load(this.file);
+  }
+
+  /**
+   * Get key for the specified [*.ini] file
+   *
+   * @param  java.io.File iniFile
+   * @return java.lang.String
+   */
+  public String getKey(File iniFile) {
+    String path= iniFile.getAbsolutePath();
+    String base= this.basedir.getAbsolutePath() + File.separator;
+    if (path.startsWith(base)) path= path.substring(base.length());
+    return path.replace(File.separatorChar, '/');
+  }
+
+  /**
+   * Get duration of the last run of the specified [*.ini] file
+   *
+   * @param  java.io.File iniFile
+   * @return long Milliseconds; -1 if unknown
+   */
+  public synchronized long getDuration(File iniFile) {
+    String key= this.getKey(iniFile);
+    if (this.updates.containsKey(key)) return this.updates.get(key);
+
+    String value= this.ini.getProperty(key, "duration");
+    if (null == value) return -1;
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException ex) {
+      return -1;
+    }
+  }
+
+  /**
+   * Record duration of a run of the specified [*.ini] file
+   *
+   * @param  java.io.File iniFile
+   * @param  long duration Milliseconds
+   * @return void
+   */
+  public synchronized void setDuration(File iniFile, long duration) {
+    this.updates.put(this.getKey(iniFile), duration);
+  }
+
+  /**
+   * Record outcome of a run of the specified [*.ini] file
+   *
+   * @param  java.io.File iniFile
+   * @param  boolean passed Whether the tests passed (eventually)
+   * @param  boolean retried Whether the tests were retried after failing
+   * @return void
+   */
+  public synchronized void addRun(File iniFile, boolean passed, boolean retried) {
+    String key= this.getKey(iniFile);
+    int[] counts= this.outcomes.get(key);
+    if (null == counts) {
+      counts= new int[3];
+      this.outcomes.put(key, counts);
+    }
+    counts[0]++;
+    if (!passed) counts[1]++;
+    if (passed && retried) counts[2]++;
+  }
+
+  /**
+   * Get flakiness of the specified [*.ini] file: the share of its runs that passed only after
+   * being retried
+   *
+   * @param  java.io.File iniFile
+   * @return double Between 0 and 1; -1 if it never ran
+   */
+  public synchronized double getFlakiness(File iniFile) {
+    String key= this.getKey(iniFile);
+    int[] counts= TestHistoryFile.counts(this.ini, key, this.outcomes.get(key));
+    return 0 == counts[0] ? -1 : (double)counts[2] / counts[0];
+  }
+
+  /**
+   * Get run, failure and flaky counts from the specified ini file, plus pending ones
+   *
+   * @param  net.xp_forge.maven.plugins.xp.io.IniFile ini
+   * @param  java.lang.String key
+   * @param  int[] pending May be null
+   * @return int[]
+   */
+  private static int[] counts(IniFile ini, String key, int[] pending) {
+    String[] names= {"runs", "failures", "flaky"};
+    int[] counts= new int[names.length];
+    for (int i= 0; i < names.length; i++) {
+      String value= ini.getProperty(key, names[i]);
+      try {
+        if (null != value) counts[i]= Integer.parseInt(value.trim());
+      } catch (NumberFormatException ex) {
+        // Ignore, start over
+      }
+      if (null != pending) counts[i]+= pending[i];
+    }
+    return counts;
+  }
+
+  /**
+   * Sort [*.ini] files longest first; files without history are considered longest, as
+   * nothing is known about them
+   *
+   * @param  java.util.List<java.io.File> iniFiles
+   * @return java.util.List<java.io.File> A sorted copy
+   */
+  public List<File> sortLongestFirst(List<File> iniFiles) {
+    List<File> sorted= new ArrayList<File>(iniFiles);
+    Collections.sort(sorted, new Comparator<File>() {
+      public int compare(File a, File b) {
+        long da= getDuration(a);
+        long db= getDuration(b);
+        if (-1 == da) da= Long.MAX_VALUE;
+        if (-1 == db) db= Long.MAX_VALUE;
+        return da < db ? 1 : (da > db ? -1 : 0);
+      }
+    });
+    return sorted;
+  }
+
+  /**
+   * Select the [*.ini] files for shard #index (0-based) of the specified number of shards
+   * round-robin over the files sorted by key, so shard sizes differ by at most one file. The
+   * selection only depends on the file names, so all nodes agree on it and every [*.ini] file
+   * is part of exactly one shard
+   *
+   * @param  java.util.List<java.io.File> iniFiles
+   * @param  int index
+   * @param  int total
+   * @return java.util.List<java.io.File> The selected files, in their original order
+   */
+  public List<File> selectShardByKey(List<File> iniFiles, int index, int total) {
+    List<String> keys= new ArrayList<String>();
+    for (File iniFile : iniFiles) {
+      keys.add(this.getKey(iniFile));
+    }
+    Collections.sort(keys);
+
+    List<File> selected= new ArrayList<File>();
+    for (File iniFile : iniFiles) {
+      if (index == keys.indexOf(this.getKey(iniFile)) % total) selected.add(iniFile);
+    }
+    return selected;
+  }
+
+  /**
+   * Select the [*.ini] files for shard #index (0-based) of the specified number of shards,
+   * balanced by the durations in this history: [*.ini] files are distributed longest first,
+   * each going to the shard with the smallest total duration so far (files without history
+   * count with the average duration). Without any durations, selectShardByKey() is used
+   *
+   * The selection only depends on the file names and the history, so every [*.ini] file is
+   * part of exactly one shard only if all nodes use identical histories: use a history that
+   * is not written while tests run
+   *
+   * @param  java.util.List<java.io.File> iniFiles
+   * @param  int index
+   * @param  int total
+   * @return java.util.List<java.io.File> The selected files, in their original order
+   */
+  public List<File> selectShard(List<File> iniFiles, int index, int total) {
+    final Map<File, Long> durations = new HashMap<File, Long>();
+    long known                      = 0L;
+    for (File iniFile : iniFiles) {
+      long duration= this.getDuration(iniFile);
+      if (-1 == duration) continue;
+      durations.put(iniFile, duration);
+      known+= duration;
+    }
+
+    if (durations.isEmpty()) return this.selectShardByKey(iniFiles, index, total);
+
+    long average= known / durations.size();
+    for (File iniFile : iniFiles) {
+      if (!durations.containsKey(iniFile)) durations.put(iniFile, average);
+    }
+
+    // Longest first; ties are broken by key
+    List<File> sorted= new ArrayList<File>(iniFiles);
+    Collections.sort(sorted, new Comparator<File>() {
+      public int compare(File a, File b) {
+        long da= durations.get(a);
+        long db= durations.get(b);
+        if (da != db) return da < db ? 1 : -1;
+        return getKey(a).compareTo(getKey(b));
+      }
+    });
+
+    // Assign shards
+    Map<File, Integer> shards = new HashMap<File, Integer>();
+    long[] loads              = new long[total];
+    for (File iniFile : sorted) {
+      int shard= 0;
+      for (int i= 1; i < total; i++) {
+        if (loads[i] < loads[shard]) shard= i;
+      }
+      loads[shard]+= durations.get(iniFile);
+      shards.put(iniFile, shard);
+    }
+
+    // Collect selected
+    List<File> selected= new ArrayList<File>();
+    for (File iniFile : iniFiles) {
+      if (index == shards.get(iniFile)) selected.add(iniFile);
+    }
+    return selected;
+  }
+
+  /**
+   * Save history. The file is re-read first, so results written by other builds sharing the
+   * same history file in the meantime are kept; the file is replaced atomically
+   *
+   * @param  java.lang.String comment
+   * @return void
+   * @throws java.io.IOException
+   */
+  public synchronized void dump(String comment) throws IOException {
+    IniFile merged= new IniFile();
+    if (this.file.exists()) {
+      try {
+        merged.load(this.file);
+      } catch (IOException ex) {
+        merged= new IniFile();
+      }
+    }
+
+    Iterator<Map.Entry<String, Long>> i= this.updates.entrySet().iterator();
+    while (i.hasNext()) {
+      Map.Entry<String, Long> update= i.next();
+      merged.setProperty(update.getKey(), "duration", String.valueOf(update.getValue()));
+    }
+    Iterator<Map.Entry<String, int[]>> o= this.outcomes.entrySet().iterator();
+    while (o.hasNext()) {
+      Map.Entry<String, int[]> outcome= o.next();
+      int[] counts= TestHistoryFile.counts(merged, outcome.getKey(), outcome.getValue());
+      merged.setProperty(outcome.getKey(), "runs", String.valueOf(counts[0]));
+      merged.setProperty(outcome.getKey(), "failures", String.valueOf(counts[1]));
+      merged.setProperty(outcome.getKey(), "flaky", String.valueOf(counts[2]));
+      merged.setProperty(outcome.getKey(), "flakiness", String.format(Locale.US, "%.3f", (double)counts[2] / counts[0]));
+    }
+    merged.setComment(comment);
+
+    // Write to a temporary file, then rename
+    File parent= this.file.getAbsoluteFile().getParentFile();
+    if (!parent.exists()) parent.mkdirs();
+
+    File tmp= File.createTempFile(this.file.getName(), ".tmp", parent);
+    merged.dump(tmp);
+    if (!tmp.renameTo(this.file)) {
+      this.file.delete();
+      if (!tmp.renameTo(this.file)) {
+        tmp.delete();
+        throw new IOException("Cannot write [" + this.file + "]");
+      }
+    }
+
+    this.ini= merged;
+    this.updates.clear();
+    this.outcomes.clear();
+  }
+}
@@ -0,0 +1,246 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.logging;
+
+import java.util.List;
+import java.util.ArrayList;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log buffering all messages until flushed to the specified [org.apache.maven.plugin.logging.Log]
+ * instance. Used for runners executed concurrently, so their output does not interleave
+ *
+ */
+public final class BufferedLog implements Log {
+  private static final int DEBUG = 0;
+  private static final int INFO  = 1;
+  private static final int WARN  = 2;
+  private static final int ERROR = 3;
+
+  private Log log;
+  private List<Entry> entries;
+
+  /**
+   * Constructor
+   *
+   * @param  org.apache.maven.plugin.logging.Log logger Where to flush messages to
+   * @throws lang.IllegalArgumentException when an null Log instance is passed
+   */
+  public BufferedLog(Log logger) {
+
+    // Sanity check
+    if (null == logger) {
+      throw new IllegalArgumentException("Log cannot be null");
+    }
+
+    this.log     = logger;
+    this.entries = new ArrayList<Entry>();
+  }
+
+  /**
+   * Send all buffered messages to the underlying log, in the order they were logged
+   *
+   * @return void
+   */
+  public synchronized void flush() {
+    for (Entry entry : this.entries) {
+
+      // Message only
+      if (null == entry.error) {
+        switch (entry.level) {
+          case DEBUG: this.log.debug(entry.message); break;
+          case INFO:  this.log.info(entry.message); break;
+          case WARN:  this.log.warn(entry.message); break;
+          default:    this.log.error(entry.message); break;
+        }
+
+      // Error only
+      } else if (null == entry.message) {
+        switch (entry.level) {
+          case DEBUG: this.log.debug(entry.error); break;
+          case INFO:  this.log.info(entry.error); break;
+          case WARN:  this.log.warn(entry.error); break;
+          default:    this.log.error(entry.error); break;
+        }
+
+      // Both
+      } else {
+        switch (entry.level) {
+          case DEBUG: this.log.debug(entry.message, entry.error); break;
+          case INFO:  this.log.info(entry.message, entry.error); break;
+          case WARN:  this.log.warn(entry.message, entry.error); break;
+          default:    this.log.error(entry.message, entry.error); break;
+        }
+      }
+    }
+    this.entries.clear();
+  }
+
+  /**
+   * Buffer a message
+   *
+   * @param  int level
+   * @param  java.lang.CharSequence message
+   * @param  java.lang.Throwable error
+   * @return void
+   */
+  private synchronized void add(int level, CharSequence message, Throwable error) {
+    this.entries.add(new Entry(level, message, error));
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public boolean isDebugEnabled() {
+    return this.log.isDebugEnabled();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void debug(CharSequence message) {
+    if (this.log.isDebugEnabled()) this.add(DEBUG, message, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void debug(CharSequence message, Throwable error) {
+    if (this.log.isDebugEnabled()) this.add(DEBUG, message, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void debug(Throwable error) {
+    if (this.log.isDebugEnabled()) this.add(DEBUG, null, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public boolean isInfoEnabled() {
+    return this.log.isInfoEnabled();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void info(CharSequence message) {
+    this.add(INFO, message, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void info(CharSequence message, Throwable error) {
+    this.add(INFO, message, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void info(Throwable error) {
+    this.add(INFO, null, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public boolean isWarnEnabled() {
+    return this.log.isWarnEnabled();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void warn(CharSequence message) {
+    this.add(WARN, message, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void warn(CharSequence message, Throwable error) {
+    this.add(WARN, message, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void warn(Throwable error) {
+    this.add(WARN, null, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public boolean isErrorEnabled() {
+    return this.log.isErrorEnabled();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void error(CharSequence message) {
+    this.add(ERROR, message, null);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void error(CharSequence message, Throwable error) {
+    this.add(ERROR, message, error);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void error(Throwable error) {
+    this.add(ERROR, null, error);
+  }
+
+  /**
+   * Buffered message
+   *
+   */
+  private static class Entry {
+    public int level;
+    public CharSequence message;
+    public Throwable error;
+
+    /**
+     * Constructor
+     *
+     * @param  int level
+     * @param  java.lang.CharSequence message
+     * @param  java.lang.Throwable error
+     */
+    public Entry(int level, CharSequence message, Throwable error) {
+      this.level   = level;
+      this.message = message;
+      this.error   = error;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import net.xp_forge.maven.plugins.xp.io.JsonWriter;
+
+/**
+ * Collects xcc timings (per xcc invocation and, with verbose output, per file)
+ * and writes them as JSON report
+ *
+ * The top-level wall time and throughput are the elapsed wall-clock time of all
+ * invocations; concurrent xcc workers are listed as invocations, but only the time
+ * the pool of workers took counts towards the totals
+ *
+ */
+public class CompileTimings {
+  public static final int SLOWEST_COUNT= 25;
+
+  private List<Invocation> invocations = new ArrayList<Invocation>();
+  private List<FileTiming> files       = new ArrayList<FileTiming>();
+  private long wallTime                = 0L;
+  private int fileCount                = 0;
+
+  /**
+   * Record a xcc invocation
+   *
+   * @param  java.lang.String name Source roots or files compiled
+   * @param  int fileCount Number of [*.xp] sources compiled
+   * @param  long wallTime Process wall time in milliseconds
+   * @return void
+   */
+  public synchronized void addInvocation(String name, int fileCount, long wallTime) {
+    this.invocations.add(new Invocation(name, fileCount, wallTime));
+    this.wallTime+= wallTime;
+    this.fileCount+= fileCount;
+  }
+
+  /**
+   * Record a xcc worker running concurrently with others; it does not count towards
+   * the totals, see addWorkers()
+   *
+   * @param  java.lang.String name
+   * @param  int fileCount Number of [*.xp] sources compiled
+   * @param  long wallTime Process wall time in milliseconds
+   * @return void
+   */
+  public synchronized void addWorker(String name, int fileCount, long wallTime) {
+    this.invocations.add(new Invocation(name, fileCount, wallTime));
+  }
+
+  /**
+   * Record a pool of concurrent xcc workers
+   *
+   * @param  int fileCount Number of [*.xp] sources compiled by all workers
+   * @param  long wallTime Elapsed wall-clock time of the pool in milliseconds
+   * @return void
+   */
+  public synchronized void addWorkers(int fileCount, long wallTime) {
+    this.wallTime+= wallTime;
+    this.fileCount+= fileCount;
+  }
+
+  /**
+   * Record compile time of a single file
+   *
+   * @param  java.lang.String file
+   * @param  long time Time in milliseconds
+   * @return void
+   */
+  public synchronized void addFile(String file, long time) {
+    this.files.add(new FileTiming(file, time));
+  }
+
+  /**
+   * Check whether anything was recorded
+   *
+   * @return boolean
+   */
+  public synchronized boolean isEmpty() {
+    return this.invocations.isEmpty();
+  }
+
+  /**
+   * Write report
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  public synchronized void dump(File file) throws IOException {
+    // Slowest files first
+    List<FileTiming> slowest= new ArrayList<FileTiming>(this.files);
+    Collections.sort(slowest, new Comparator<FileTiming>() {
+      public int compare(FileTiming a, FileTiming b) {
+        return a.time < b.time ? 1 : (a.time > b.time ? -1 : a.file.compareTo(b.file));
+      }
+    });
+
+    JsonWriter json= new JsonWriter(file);
+    json.beginObject();
+    json.name("created").value(String.format("%tFT%<tT%<tz", new Date()));
+    json.name("wallTime").value(this.wallTime);
+    json.name("files").value(this.fileCount);
+    json.name("filesPerSecond").value(CompileTimings.perSecond(this.fileCount, this.wallTime));
+
+    json.name("invocations").beginArray();
+    for (Invocation invocation : this.invocations) {
+      json.beginObject();
+      json.name("sources").value(invocation.name);
+      json.name("files").value(invocation.fileCount);
+      json.name("wallTime").value(invocation.wallTime);
+      json.name("filesPerSecond").value(CompileTimings.perSecond(invocation.fileCount, invocation.wallTime));
+      json.endObject();
+    }
+    json.endArray();
+
+    json.name("slowest").beginArray();
+    for (FileTiming timing : slowest.subList(0, Math.min(SLOWEST_COUNT, slowest.size()))) {
+      json.beginObject();
+      json.name("file").value(timing.file);
+      json.name("time").value(timing.time);
+      json.endObject();
+    }
+    json.endArray();
+
+    json.endObject();
+    json.close();
+  }
+
+  /**
+   * Calculate throughput
+   *
+   * @param  int count
+   * @param  long millis
+   * @return double
+   */
+  private static double perSecond(int count, long millis) {
+    return 0 == millis ? 0.0 : count * 1000.0 / millis;
+  }
+
+  /**
+   * A single xcc invocation
+   *
+   */
+  private static class Invocation {
+    public String name;
+    public int fileCount;
+    public long wallTime;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String name
+     * @param  int fileCount
+     * @param  long wallTime
+     */
+    public Invocation(String name, int fileCount, long wallTime) {
+      this.name      = name;
+      this.fileCount = fileCount;
+      this.wallTime  = wallTime;
+    }
+  }
+
+  /**
+   * Compile time of a single file
+   *
+   */
+  private static class FileTiming {
+    public String file;
+    public long time;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String file
+     * @param  long time
+     */
+    public FileTiming(String file, long time) {
+      this.file = file;
+      this.time = time;
+    }
+  }
+}
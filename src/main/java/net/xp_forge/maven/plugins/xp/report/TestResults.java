@@ -0,0 +1,298 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.Date;
+import java.util.Locale;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import net.xp_forge.maven.plugins.xp.io.JsonWriter;
+import net.xp_forge.maven.plugins.xp.report.TestSuiteResult.Status;
+
+/**
+ * Collects unittest results and writes them as Surefire-compatible XML reports
+ * (one "TEST-{suite}.xml" file per suite) and a JSON summary ("summary.json")
+ *
+ */
+public class TestResults {
+  private List<TestSuiteResult> suites= new ArrayList<TestSuiteResult>();
+
+  /**
+   * Add results of a suite
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult suite
+   * @return void
+   */
+  public synchronized void add(TestSuiteResult suite) {
+    this.suites.add(suite);
+  }
+
+  /**
+   * Check whether anything was recorded
+   *
+   * @return boolean
+   */
+  public synchronized boolean isEmpty() {
+    return this.suites.isEmpty();
+  }
+
+  /**
+   * Write reports to the specified directory
+   *
+   * @param  java.io.File directory
+   * @return void
+   * @throws java.io.IOException
+   */
+  public synchronized void dump(File directory) throws IOException {
+    if (!directory.exists()) directory.mkdirs();
+
+    // Surefire reports; suite names are made unique for file names
+    Set<String> names= new HashSet<String>();
+    for (TestSuiteResult suite : this.suites) {
+      String name= suite.name.replaceAll("[^\\w.-]", "_");
+      for (int i= 2; !names.add(name); i++) {
+        name= suite.name.replaceAll("[^\\w.-]", "_") + "-" + i;
+      }
+      TestResults.writeSurefireReport(suite, new File(directory, "TEST-" + name + ".xml"));
+    }
+
+    this.writeSummary(new File(directory, "summary.json"));
+  }
+
+  /**
+   * Write JSON summary
+   *
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  private void writeSummary(File file) throws IOException {
+    int tests    = 0;
+    int failures = 0;
+    int errors   = 0;
+    int skipped  = 0;
+    long time    = 0;
+    int flaky    = 0;
+    for (TestSuiteResult suite : this.suites) {
+      tests+= suite.tests;
+      failures+= suite.failures;
+      errors+= suite.errors;
+      skipped+= suite.skipped;
+      time+= suite.time;
+      if (suite.isFlaky()) flaky++;
+    }
+
+    JsonWriter json= new JsonWriter(file);
+    json.beginObject();
+    json.name("created").value(String.format("%tFT%<tT%<tz", new Date()));
+    json.name("tests").value(tests);
+    json.name("failures").value(failures);
+    json.name("errors").value(errors);
+    json.name("skipped").value(skipped);
+    json.name("time").value(time);
+    json.name("flaky").value(flaky);
+
+    json.name("suites").beginArray();
+    for (TestSuiteResult suite : this.suites) {
+      json.beginObject();
+      json.name("name").value(suite.name);
+      json.name("complete").value(suite.complete);
+      json.name("timedOut").value(suite.timedOut);
+      json.name("attempts").value(suite.attempts);
+      json.name("flaky").value(suite.isFlaky());
+      json.name("tests").value(suite.tests);
+      json.name("failures").value(suite.failures);
+      json.name("errors").value(suite.errors);
+      json.name("skipped").value(suite.skipped);
+      json.name("time").value(suite.time);
+      json.name("failed").beginArray();
+      for (TestSuiteResult.TestCase testCase : suite.cases) {
+        if (Status.FAILED != testCase.status && Status.ERROR != testCase.status) continue;
+        json.beginObject();
+        json.name("test").value(testCase.className + "::" + testCase.name);
+        json.name("status").value(testCase.status.name().toLowerCase());
+        json.name("message").value(testCase.message);
+        json.endObject();
+      }
+      json.endArray();
+      json.endObject();
+    }
+    json.endArray();
+
+    json.endObject();
+    json.close();
+  }
+
+  /**
+   * Write Surefire XML report for a suite
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult suite
+   * @param  java.io.File file
+   * @return void
+   * @throws java.io.IOException
+   */
+  private static void writeSurefireReport(TestSuiteResult suite, File file) throws IOException {
+    PrintStream out= new PrintStream(file, "UTF-8");
+
+    out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    out.printf(
+      "<testsuite name=\"%s\" tests=\"%d\" failures=\"%d\" errors=\"%d\" skipped=\"%d\" time=\"%s\" timestamp=\"%tFT%<tT\">",
+      TestResults.escape(suite.name),
+      suite.tests,
+      suite.failures,
+      suite.errors,
+      suite.skipped,
+      TestResults.seconds(suite.time),
+      new Date(suite.timestamp)
+    );
+    out.println();
+
+    // Failures of earlier attempts, by test
+    Map<String, List<TestSuiteResult.TestCase>> reruns= new LinkedHashMap<String, List<TestSuiteResult.TestCase>>();
+    for (TestSuiteResult.TestCase rerun : suite.reruns) {
+      String key= rerun.className + "::" + rerun.name;
+      if (!reruns.containsKey(key)) reruns.put(key, new ArrayList<TestSuiteResult.TestCase>());
+      reruns.get(key).add(rerun);
+    }
+
+    // Test cases
+    for (TestSuiteResult.TestCase testCase : suite.cases) {
+      String element= null;
+      switch (testCase.status) {
+        case FAILED:  element= "failure"; break;
+        case ERROR:   element= "error"; break;
+        case SKIPPED: element= "skipped"; break;
+        default:      break;
+      }
+      List<TestSuiteResult.TestCase> previous= reruns.remove(testCase.className + "::" + testCase.name);
+
+      out.printf(
+        "  <testcase name=\"%s\" classname=\"%s\" time=\"%s\"",
+        TestResults.escape(testCase.name),
+        TestResults.escape(testCase.className),
+        TestResults.seconds(testCase.time)
+      );
+      if (null == element && null == previous) {
+        out.println("/>");
+        continue;
+      }
+
+      out.println(">");
+      if (null != element) TestResults.writeOutcome(out, element, testCase);
+
+      // Failed again: "rerunFailure", passed eventually: "flakyFailure"
+      if (null != previous) {
+        String prefix= (Status.FAILED == testCase.status || Status.ERROR == testCase.status) ? "rerun" : "flaky";
+        for (TestSuiteResult.TestCase rerun : previous) {
+          TestResults.writeOutcome(out, prefix + (Status.ERROR == rerun.status ? "Error" : "Failure"), rerun);
+        }
+      }
+      out.println("  </testcase>");
+    }
+
+    // Tests that failed before, but are not reported by the last attempt, passed
+    for (List<TestSuiteResult.TestCase> previous : reruns.values()) {
+      TestSuiteResult.TestCase first= previous.get(0);
+      out.printf(
+        "  <testcase name=\"%s\" classname=\"%s\" time=\"%s\">",
+        TestResults.escape(first.name),
+        TestResults.escape(first.className),
+        TestResults.seconds(0)
+      );
+      out.println();
+      for (TestSuiteResult.TestCase rerun : previous) {
+        TestResults.writeOutcome(out, Status.ERROR == rerun.status ? "flakyError" : "flakyFailure", rerun);
+      }
+      out.println("  </testcase>");
+    }
+
+    // Last lines of runner output
+    StringBuilder output= new StringBuilder();
+    for (String line : suite.output) {
+      output.append(line).append('\n');
+    }
+    out.printf("  <system-out>%s</system-out>", TestResults.escape(output.toString(), false));
+    out.println();
+    out.println("</testsuite>");
+
+    // Close stream
+    out.flush();
+    out.close();
+  }
+
+  /**
+   * Write outcome element of a test case
+   *
+   * @param  java.io.PrintStream out
+   * @param  java.lang.String element e.g. "failure"
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult.TestCase testCase
+   * @return void
+   */
+  private static void writeOutcome(PrintStream out, String element, TestSuiteResult.TestCase testCase) {
+    out.printf("    <%s", element);
+    if (null != testCase.message) out.printf(" message=\"%s\"", TestResults.escape(testCase.message));
+    if (null != testCase.type) out.printf(" type=\"%s\"", TestResults.escape(testCase.type));
+    out.printf(">%s</%s>", TestResults.escape(testCase.detail.toString(), false), element);
+    out.println();
+  }
+
+  /**
+   * Format milliseconds as seconds
+   *
+   * @param  long millis
+   * @return java.lang.String
+   */
+  private static String seconds(long millis) {
+    return String.format(Locale.US, "%.3f", Math.max(0, millis) / 1000.0);
+  }
+
+  /**
+   * Escape text for XML attributes; characters not allowed in XML are dropped
+   *
+   * @param  java.lang.String str
+   * @return java.lang.String
+   */
+  private static String escape(String str) {
+    return TestResults.escape(str, true);
+  }
+
+  /**
+   * Escape text for XML; characters not allowed in XML are dropped
+   *
+   * @param  java.lang.String str
+   * @param  boolean attribute Whether to escape line breaks and tabs, which would be normalized in attributes
+   * @return java.lang.String
+   */
+  private static String escape(String str, boolean attribute) {
+    if (null == str) return "";
+
+    StringBuilder sb= new StringBuilder(str.length());
+    for (int i= 0; i < str.length(); i++) {
+      char c= str.charAt(i);
+      switch (c) {
+        case '<':  sb.append("&lt;"); break;
+        case '>':  sb.append("&gt;"); break;
+        case '&':  sb.append("&amp;"); break;
+        case '"':  sb.append("&quot;"); break;
+        case '\n': sb.append(attribute ? "&#10;" : "\n"); break;
+        case '\r': break;
+        case '\t': sb.append(attribute ? "&#9;" : "\t"); break;
+        default:
+          if (c >= 0x20) sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+}
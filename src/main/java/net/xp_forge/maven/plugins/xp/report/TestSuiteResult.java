@@ -0,0 +1,151 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Results of a single unittest runner invocation (usually, one [*.ini] file)
+ *
+ * Counts are taken from the runner's summary line when present; individual test cases
+ * are only known for tests the runner reports by name (failures, errors, skipped tests
+ * and, with verbose output, successful ones). The runner's time is known for the suite
+ * as a whole, so durations of tests that pass silently are not available
+ *
+ * Of the runner output, only the last lines are kept, see UnittestOutputParser.TAIL_SIZE
+ *
+ * When a failed suite is retried, the result of the last attempt is kept; test cases that
+ * failed in earlier attempts are kept in "reruns"
+ *
+ */
+public class TestSuiteResult {
+  public enum Status { PASSED, FAILED, ERROR, SKIPPED }
+
+  public String name;
+  public long timestamp;
+  public long time;
+  public int tests;
+  public int failures;
+  public int errors;
+  public int skipped;
+  public boolean complete;
+  public boolean timedOut;
+  public int attempts;
+  public List<TestCase> cases;
+  public List<TestCase> reruns;
+  public List<String> output;
+
+  /**
+   * Constructor
+   *
+   * @param  java.lang.String name
+   */
+  public TestSuiteResult(String name) {
+    this.name      = name;
+    this.timestamp = System.currentTimeMillis();
+    this.time      = -1;
+    this.attempts  = 1;
+    this.cases     = new ArrayList<TestCase>();
+    this.reruns    = new ArrayList<TestCase>();
+    this.output    = new ArrayList<String>();
+  }
+
+  /**
+   * Count test cases with the specified status
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult.Status status
+   * @return int
+   */
+  public int count(Status status) {
+    int count= 0;
+    for (TestCase testCase : this.cases) {
+      if (status == testCase.status) count++;
+    }
+    return count;
+  }
+
+  /**
+   * Check whether this suite has failures or errors
+   *
+   * @return boolean
+   */
+  public boolean isFailed() {
+    return this.failures > 0 || this.errors > 0;
+  }
+
+  /**
+   * Check whether this suite passed, but only after being retried
+   *
+   * @return boolean
+   */
+  public boolean isFlaky() {
+    return this.attempts > 1 && !this.isFailed();
+  }
+
+  /**
+   * Check whether running this suite again may help: not if the runner timed out, as it
+   * would most likely time out again, or if it failed without reporting any test, e.g. for
+   * an invalid [*.ini] file. Test cases added for the runner itself, named in parentheses
+   * like "(timeout)", do not count as reported
+   *
+   * @return boolean
+   */
+  public boolean isRetryable() {
+    if (this.timedOut) return false;
+    if (this.complete) return true;
+
+    for (TestCase testCase : this.cases) {
+      if (!testCase.name.startsWith("(")) return true;
+    }
+    return false;
+  }
+
+  /**
+   * Take over failed test cases of an earlier attempt
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult previous
+   * @return void
+   */
+  public void addRerun(TestSuiteResult previous) {
+    this.attempts= previous.attempts + 1;
+    this.reruns.addAll(previous.reruns);
+    for (TestCase testCase : previous.cases) {
+      if (Status.FAILED == testCase.status || Status.ERROR == testCase.status) this.reruns.add(testCase);
+    }
+  }
+
+  /**
+   * A single test
+   *
+   */
+  public static class TestCase {
+    public String className;
+    public String name;
+    public Status status;
+    public long time;
+    public String type;
+    public String message;
+    public StringBuilder detail;
+
+    /**
+     * Constructor
+     *
+     * @param  java.lang.String className
+     * @param  java.lang.String name
+     * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult.Status status
+     * @param  long time Time in milliseconds
+     */
+    public TestCase(String className, String name, Status status, long time) {
+      this.className = className;
+      this.name      = name;
+      this.status    = status;
+      this.time      = time;
+      this.detail    = new StringBuilder();
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
+
+import net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener;
+import net.xp_forge.maven.plugins.xp.report.TestSuiteResult.Status;
+
+/**
+ * Incrementally parses unittest runner output into a [TestSuiteResult]
+ *
+ * Recognized lines:
+ *   F unittest.TestAssertionFailed(test= pkg.FooTest::testBar, time= 0.001 seconds) {
+ *     ...details, up to a line consisting of a closing brace...
+ *   }
+ *   OK: 14/15 run (1 skipped), 13 succeeded, 0 failed
+ *   Time taken: 0.123 seconds
+ *
+ * The progress line ("[..F.S]", written while tests run) is used to tell how far the
+ * runner got, see getDiagnostic()
+ *
+ * Anything else (memory usage, unknown output) is ignored, so a changed
+ * output format results in a less detailed report, not in a failure
+ *
+ * Output is not buffered: only the last TAIL_SIZE lines and the details of the
+ * test currently being reported on are kept while the runner is running
+ *
+ */
+public class UnittestOutputParser implements RunnerOutputListener {
+  private static final Pattern OUTCOME = Pattern.compile("^\\s*(?:[A-Z]\\s+)?(?:[\\w.]+\\.)?(Test\\w+)\\(test= ([^,]+?)(?:::([^,(]+))?(?:\\(.*?\\))?, time= ([0-9.]+) seconds\\)\\s*(\\{)?\\s*$");
+  private static final Pattern SUMMARY = Pattern.compile("^\\s*(?:OK|FAIL|FAILED)\\s*:\\s*(\\d+)/(\\d+) run \\((\\d+) skipped\\), (\\d+) succeeded, (\\d+) failed");
+  private static final Pattern ELAPSED = Pattern.compile("^\\s*Time taken: ([0-9.]+) seconds");
+  private static final Pattern TYPE    = Pattern.compile("^\\s*([\\w.]+)");
+
+  public static final int TAIL_SIZE= 20;
+
+  private TestSuiteResult suite;
+  private TestSuiteResult.TestCase current;
+  private int summaryFailed;
+  private boolean inProgress;
+  private int started;
+  private int failed;
+  private LinkedList<String> tail;
+
+  /**
+   * Constructor
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.TestSuiteResult suite Where results are added
+   */
+  public UnittestOutputParser(TestSuiteResult suite) {
+    this.suite         = suite;
+    this.summaryFailed = -1;
+    this.tail          = new LinkedList<String>();
+  }
+
+  /**
+   * Get suite
+   *
+   * @return net.xp_forge.maven.plugins.xp.report.TestSuiteResult
+   */
+  public TestSuiteResult getSuite() {
+    return this.suite;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void outputLine(String line) {
+    // Keep last lines for diagnostics
+    this.tail.add(line);
+    if (this.tail.size() > TAIL_SIZE) this.tail.removeFirst();
+
+    // Progress: "[" followed by one char per test event, up to "]"; may span several lines
+    if (!this.inProgress && line.startsWith("[") && !this.suite.complete && null == this.current) {
+      this.inProgress= true;
+    }
+    if (this.inProgress) {
+      for (int i= 0; i < line.length(); i++) {
+        switch (line.charAt(i)) {
+          case '.': this.started++; break;
+          case 'F': case 'E': this.failed++; break;
+          case ']': this.inProgress= false; break;
+          default: break;
+        }
+      }
+      return;
+    }
+
+    // Inside details of a test
+    if (null != this.current) {
+      if (line.trim().equals("}")) {
+        this.current= null;
+        return;
+      }
+      if (null == this.current.message && 0 != line.trim().length()) {
+        this.current.message = line.trim();
+        Matcher type         = TYPE.matcher(line);
+        if (type.find() && type.group(1).contains(".")) this.current.type= type.group(1);
+      }
+      this.current.detail.append(line).append('\n');
+      return;
+    }
+
+    // Single test outcome
+    Matcher matcher= OUTCOME.matcher(line);
+    if (matcher.find()) {
+      TestSuiteResult.TestCase testCase= new TestSuiteResult.TestCase(
+        matcher.group(2).trim(),
+        null == matcher.group(3) ? matcher.group(2).trim() : matcher.group(3).trim(),
+        UnittestOutputParser.statusOf(matcher.group(1)),
+        UnittestOutputParser.millis(matcher.group(4))
+      );
+      this.suite.cases.add(testCase);
+      if (null != matcher.group(5)) this.current= testCase;
+      return;
+    }
+
+    // Summary
+    matcher= SUMMARY.matcher(line);
+    if (matcher.find()) {
+      this.suite.complete  = true;
+      this.suite.tests     = Integer.parseInt(matcher.group(2));
+      this.suite.skipped   = Integer.parseInt(matcher.group(3));
+      this.summaryFailed   = Integer.parseInt(matcher.group(5));
+      return;
+    }
+
+    matcher= ELAPSED.matcher(line);
+    if (matcher.find()) {
+      this.suite.time= UnittestOutputParser.millis(matcher.group(1));
+    }
+  }
+
+  /**
+   * Complete results; call when the runner has terminated
+   *
+   * @param  long wallTime Runner wall time in milliseconds; used if the runner did not report a time
+   * @param  java.lang.Throwable error Why the runner failed; null if it succeeded
+   * @return void
+   */
+  public void finish(long wallTime, Throwable error) {
+    String diagnostic = this.suite.timedOut ? this.getDiagnostic() : null;
+    this.current      = null;
+    this.suite.output = new ArrayList<String>(this.tail);
+    if (-1 == this.suite.time) this.suite.time= wallTime;
+
+    this.suite.failures = this.suite.count(Status.FAILED);
+    this.suite.errors   = this.suite.count(Status.ERROR);
+
+    if (this.suite.complete) {
+
+      // The summary does not tell failures and errors apart; unnamed ones count as failures
+      this.suite.failures+= Math.max(0, this.summaryFailed - this.suite.failures - this.suite.errors);
+      this.suite.skipped  = Math.max(this.suite.skipped, this.suite.count(Status.SKIPPED));
+      this.suite.tests    = Math.max(this.suite.tests, this.suite.cases.size());
+    } else {
+      this.suite.skipped  = this.suite.count(Status.SKIPPED);
+      this.suite.tests    = this.suite.cases.size();
+    }
+
+    // Runner was killed after exceeding its timeout
+    if (this.suite.timedOut) {
+      TestSuiteResult.TestCase testCase= new TestSuiteResult.TestCase(this.suite.name, "(timeout)", Status.ERROR, wallTime);
+      testCase.type    = "timeout";
+      testCase.message = "Timed out after " + (wallTime / 1000) + " seconds; " + this.started + " test(s) started";
+      testCase.detail.append(diagnostic);
+      this.suite.cases.add(testCase);
+      this.suite.errors++;
+      this.suite.tests++;
+      return;
+    }
+
+    // Runner failed without reporting why: record as error
+    if (null != error && !this.suite.isFailed()) {
+      TestSuiteResult.TestCase testCase= new TestSuiteResult.TestCase(this.suite.name, "(unittest runner)", Status.ERROR, wallTime);
+      testCase.type    = error.getClass().getName();
+      testCase.message = error.getMessage();
+      this.suite.cases.add(testCase);
+      this.suite.errors++;
+      this.suite.tests++;
+    }
+  }
+
+  /**
+   * Get a diagnostic of where the runner is: progress so far, the test being reported on,
+   * if any, and the last output lines
+   *
+   * @return java.lang.String
+   */
+  public String getDiagnostic() {
+    StringBuilder sb= new StringBuilder();
+    sb.append("Tests started: ").append(this.started).append(", failed so far: ").append(this.failed).append('\n');
+    if (null != this.current) {
+      sb.append("Reporting on: ").append(this.current.className).append("::").append(this.current.name).append('\n');
+    } else if (!this.suite.cases.isEmpty()) {
+      TestSuiteResult.TestCase last= this.suite.cases.get(this.suite.cases.size() - 1);
+      sb.append("Last reported test: ").append(last.className).append("::").append(last.name).append('\n');
+    }
+    sb.append("Last ").append(this.tail.size()).append(" output line(s):\n");
+    for (String line : this.tail) {
+      sb.append("  ").append(line).append('\n');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Map outcome class name to status
+   *
+   * @param  java.lang.String outcome e.g. "TestAssertionFailed"
+   * @return net.xp_forge.maven.plugins.xp.report.TestSuiteResult.Status
+   */
+  private static Status statusOf(String outcome) {
+    if (outcome.equals("TestExpectationMet") || outcome.equals("TestSuccess")) {
+      return Status.PASSED;
+    } else if (outcome.contains("Skipped") || outcome.contains("NotRun") || outcome.contains("NotMet") || outcome.contains("Ignored")) {
+      return Status.SKIPPED;
+    } else if (outcome.contains("Fail")) {
+      return Status.FAILED;
+    }
+    return Status.ERROR;
+  }
+
+  /**
+   * Convert seconds to milliseconds
+   *
+   * @param  java.lang.String seconds
+   * @return long
+   */
+  private static long millis(String seconds) {
+    try {
+      return Math.round(Double.parseDouble(seconds) * 1000);
+    } catch (NumberFormatException ex) {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import java.util.regex.Pattern;
+import java.util.regex.Matcher;
+
+import net.xp_forge.maven.plugins.xp.exec.RunnerOutputListener;
+
+/**
+ * Derives per-file compile times from verbose xcc output
+ *
+ * A line mentioning a [*.xp] file other than the current one starts timing that
+ * file; the previous file's time is the time elapsed until then. If xcc reports
+ * a time itself ("... 0.123 seconds") on a line about the current file, that
+ * time is used instead
+ *
+ */
+public class XccTimingListener implements RunnerOutputListener {
+  private static final Pattern SOURCE  = Pattern.compile("([^\\s'\"\\[\\]()]+\\.xp)\\b");
+  private static final Pattern SECONDS = Pattern.compile("([0-9]+(?:\\.[0-9]+)?) seconds");
+
+  private CompileTimings timings;
+  private String current;
+  private long started;
+  private long reported;
+
+  /**
+   * Constructor
+   *
+   * @param  net.xp_forge.maven.plugins.xp.report.CompileTimings timings
+   */
+  public XccTimingListener(CompileTimings timings) {
+    this.timings= timings;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   */
+  public void outputLine(String line) {
+    long now= System.currentTimeMillis();
+
+    // Time reported by xcc for the current file
+    Matcher seconds= SECONDS.matcher(line);
+    if (null != this.current && seconds.find() && (line.contains(this.current) || line.trim().startsWith("-"))) {
+      this.reported= Math.round(Double.parseDouble(seconds.group(1)) * 1000);
+    }
+
+    // Next file
+    Matcher source= SOURCE.matcher(line);
+    if (source.find() && !source.group(1).equals(this.current)) {
+      this.finish(now);
+      this.current  = source.group(1);
+      this.started  = now;
+      this.reported = -1;
+    }
+  }
+
+  /**
+   * Record time of the last file; call when xcc has terminated
+   *
+   * @return void
+   */
+  public void finish() {
+    this.finish(System.currentTimeMillis());
+  }
+
+  /**
+   * Record time of the current file
+   *
+   * @param  long now
+   * @return void
+   */
+  private void finish(long now) {
+    if (null == this.current) return;
+
+    this.timings.addFile(this.current, this.reported >= 0 ? this.reported : now - this.started);
+    this.current= null;
+  }
+}
@@ -14,7 +14,6 @@ import org.apache.maven.artifact.Artifact;
 
 import org.codehaus.plexus.archiver.AbstractArchiver;
 import org.codehaus.plexus.archiver.AbstractUnArchiver;
-import org.codehaus.plexus.archiver.zip.ZipArchiver;
 import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
 import org.codehaus.plexus.archiver.ArchiverException;
 
@@ -22,6 +21,8 @@ import org.codehaus.plexus.logging.Logger;
 
 import net.xp_forge.maven.plugins.xp.util.FileUtils;
 import net.xp_forge.maven.plugins.xp.archiver.xar.XarArchiver;
+import net.xp_forge.maven.plugins.xp.archiver.zip.ZipWriter;
+import net.xp_forge.maven.plugins.xp.archiver.zip.DeterministicZipArchiver;
 import net.xp_forge.maven.plugins.xp.archiver.xar.XarUnArchiver;
 
 /**
@@ -55,6 +56,19 @@ public final class ArchiveUtils {
    * @return org.codehaus.plexus.archiver.AbstractArchiver
    */
   public static AbstractArchiver getArchiver(File file) throws IllegalArgumentException {
+    return ArchiveUtils.getArchiver(file, 1);
+  }
+
+  /**
+   * Get archiver based on specified file; zip files are compressed using the specified
+   * number of threads. Zip files keep the entries' order, modification times and modes,
+   * and do not depend on the number of threads
+   *
+   * @param  java.io.File file
+   * @param  int threads
+   * @return org.codehaus.plexus.archiver.AbstractArchiver
+   */
+  public static AbstractArchiver getArchiver(File file, int threads) throws IllegalArgumentException {
     String extension= file.getName().substring(file.getName().lastIndexOf('.') + 1);
 
     if (extension.equals("xar")) {
@@ -65,7 +79,44 @@ public final class ArchiveUtils {
     }
 
     if (extension.equals("zip")) {
-      AbstractArchiver retVal= new ZipArchiver();
+      DeterministicZipArchiver retVal= new DeterministicZipArchiver();
+      retVal.setTime(ZipWriter.ENTRY_TIME);
+      retVal.setSorted(false);
+      retVal.setNormalizeModes(false);
+      retVal.setThreads(threads);
+      retVal.setDestFile(file);
+      retVal.enableLogging(ArchiveUtils.logger);
+      return retVal;
+    }
+
+    // Invalid package type
+    throw new IllegalArgumentException("Cannot get Archiver for [" + file + "]");
+  }
+
+  /**
+   * Get archiver based on specified file producing byte-identical archives for identical
+   * contents: entries are sorted by name and, for zip files, get the specified timestamp
+   *
+   * @param  java.io.File file
+   * @param  long time Timestamp of all entries in milliseconds since epoch
+   * @param  int threads Number of threads to compress zip files with
+   * @return org.codehaus.plexus.archiver.AbstractArchiver
+   */
+  public static AbstractArchiver getReproducibleArchiver(File file, long time, int threads) throws IllegalArgumentException {
+    String extension= file.getName().substring(file.getName().lastIndexOf('.') + 1);
+
+    if (extension.equals("xar")) {
+      XarArchiver retVal= new XarArchiver();
+      retVal.setSorted(true);
+      retVal.setDestFile(file);
+      retVal.enableLogging(ArchiveUtils.logger);
+      return retVal;
+    }
+
+    if (extension.equals("zip")) {
+      DeterministicZipArchiver retVal= new DeterministicZipArchiver();
+      retVal.setTime(time);
+      retVal.setThreads(threads);
       retVal.setDestFile(file);
       retVal.enableLogging(ArchiveUtils.logger);
       return retVal;
@@ -24,6 +24,7 @@ import org.apache.maven.plugin.logging.Log;
 
 import org.apache.commons.exec.CommandLine;
 import org.apache.commons.exec.DefaultExecutor;
+import org.apache.commons.exec.ExecuteWatchdog;
 import org.apache.commons.exec.ExecuteException;
 import org.apache.commons.exec.Executor;
 import org.apache.commons.exec.LogOutputStream;
@@ -125,13 +126,7 @@ public final class ExecuteUtils {
     LogOutputStream logOutputStream= new LogOutputStream() {
       @Override
       protected void processLine(String line, @SuppressWarnings("unused") int level) {
-        if (line.toLowerCase().indexOf("error") > -1) {
-          cat.error(line);
-        } else if (line.toLowerCase().indexOf("warn") > -1) {
-          cat.warn(line);
-        } else {
-          cat.info(line);
-        }
+        ExecuteUtils.logLine(cat, line);
       }
     };
 
@@ -156,6 +151,29 @@ public final class ExecuteUtils {
     final Log cat,
     final LogOutputStream logOutputStream
   ) throws ExecutionException {
+    ExecuteUtils.executeCommand(executable, arguments, workingDirectory, environment, cat, logOutputStream, null);
+  }
+
+  /**
+   * Execute the specified executable with the specified arguments
+   *
+   * @param  java.io.File executable Executable to run
+   * @param  java.util.List<String> argument Executable arguments
+   * @param  java.io.File workingDirectory Executable working directory
+   * @param  org.apache.maven.plugin.logging.Log cat Log cat
+   * @param  org.apache.commons.exec.LogOutputStream logOutputStream
+   * @param  org.apache.commons.exec.ExecuteWatchdog watchdog Used to kill the process; null for none
+   * @throws java.util.concurrent.ExecutionException when command execution failed
+   */
+  public static void executeCommand(
+    File executable,
+    List<String> arguments,
+    File workingDirectory,
+    Map<String, String> environment,
+    final Log cat,
+    final LogOutputStream logOutputStream,
+    ExecuteWatchdog watchdog
+  ) throws ExecutionException {
 
     // Debug
     if (cat != null) {
@@ -183,6 +201,7 @@ public final class ExecuteUtils {
 
     //executor.setStreamHandler(new PumpStreamHandler(System.out, System.err, System.in));
     executor.setStreamHandler(new PumpStreamHandler(logOutputStream));
+    if (null != watchdog) executor.setWatchdog(watchdog);
 
     // Prepare environment
     Map<String, String> env;
@@ -217,6 +236,24 @@ public final class ExecuteUtils {
     }
   }
 
+  /**
+   * Send a line of command output to the specified log cat; the log level is guessed
+   * from the line contents
+   *
+   * @param  org.apache.maven.plugin.logging.Log cat Log cat
+   * @param  java.lang.String line
+   * @return void
+   */
+  public static void logLine(Log cat, String line) {
+    if (line.toLowerCase().indexOf("error") > -1) {
+      cat.error(line);
+    } else if (line.toLowerCase().indexOf("warn") > -1) {
+      cat.warn(line);
+    } else {
+      cat.info(line);
+    }
+  }
+
   /**
    * Get OS name as string: "win" or "unix"
    *
@@ -7,12 +7,16 @@
 package net.xp_forge.maven.plugins.xp.util;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.StringBufferInputStream;
 import java.nio.channels.FileChannel;
+import java.lang.reflect.Method;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -263,6 +267,52 @@ public final class FileUtils {
     }
   }
 
+  /**
+   * Create a hard link to a file. Uses java.nio.file when available (Java 7+), so
+   * callers must fall back to copying if this returns false
+   *
+   * @param  java.io.File srcFile Existing file
+   * @param  java.io.File destFile Link to create; must not exist
+   * @return boolean false if the link could not be created (unsupported, across devices, ...)
+   */
+  public static boolean linkFile(File srcFile, File destFile) {
+    File destDirectory= destFile.getParentFile();
+    if (null != destDirectory && !destDirectory.exists()) {
+      destDirectory.mkdirs();
+    }
+
+    try {
+      Class<?> pathClass  = Class.forName("java.nio.file.Path");
+      Method toPath       = File.class.getMethod("toPath");
+      Method createLink   = Class.forName("java.nio.file.Files").getMethod("createLink", pathClass, pathClass);
+      createLink.invoke(null, toPath.invoke(destFile), toPath.invoke(srcFile.getAbsoluteFile()));
+      return true;
+    } catch (Exception ex) {
+      return false;
+    }
+  }
+
+  /**
+   * Check whether two paths refer to the same file, e.g. because one is a hard link to the
+   * other. Uses java.nio.file when available (Java 7+)
+   *
+   * @param  java.io.File a
+   * @param  java.io.File b
+   * @return boolean false if not the same file, or if this cannot be determined
+   */
+  public static boolean isSameFile(File a, File b) {
+    if (!a.exists() || !b.exists()) return false;
+
+    try {
+      Class<?> pathClass = Class.forName("java.nio.file.Path");
+      Method toPath      = File.class.getMethod("toPath");
+      Method isSameFile  = Class.forName("java.nio.file.Files").getMethod("isSameFile", pathClass, pathClass);
+      return (Boolean)isSameFile.invoke(null, toPath.invoke(a.getAbsoluteFile()), toPath.invoke(b.getAbsoluteFile()));
+    } catch (Exception ex) {
+      return false;
+    }
+  }
+
   /**
    * Deletes a non-empty directory
    *
@@ -332,4 +382,103 @@ public final class FileUtils {
     // No files found
     return false;
   }
+
+  /**
+   * Recursively list all files inside the specified directory accepted by the specified filter
+   *
+   * @param  java.io.File directory
+   * @param  java.io.FileFilter filter null to accept all files
+   * @return java.util.List<java.io.File>
+   * @throws java.io.IOException
+   */
+  public static List<File> listFiles(File directory, FileFilter filter) throws IOException {
+    List<File> retVal= new ArrayList<File>();
+    FileUtils.listFiles(directory, filter, retVal);
+    return retVal;
+  }
+
+  /**
+   * Recursively list all files inside the specified directory accepted by the specified filter
+   *
+   * @param  java.io.File directory
+   * @param  java.io.FileFilter filter null to accept all files
+   * @param  java.util.List<java.io.File> files List to add found files to
+   * @return void
+   * @throws java.io.IOException
+   */
+  private static void listFiles(File directory, FileFilter filter, List<File> files) throws IOException {
+    if (null == directory || !directory.exists() || !directory.isDirectory()) return;
+
+    // List directory contents
+    File[] entries= directory.listFiles();
+    if (null == entries) {
+      throw new IOException("Failed to list contents of directory [" + directory + "]");
+    }
+
+    for (File entry : entries) {
+      if (entry.isDirectory()) {
+        FileUtils.listFiles(entry, filter, files);
+      } else if (null == filter || filter.accept(entry)) {
+        files.add(entry);
+      }
+    }
+  }
+
+  /**
+   * Calculate the MD5 checksum of the specified file
+   *
+   * @param  java.io.File file
+   * @return java.lang.String Hex-encoded checksum
+   * @throws java.io.IOException
+   */
+  public static String getChecksum(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest= MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IOException("MD5 not supported", ex);
+    }
+
+    FileInputStream is= new FileInputStream(file);
+    try {
+      byte[] buffer= new byte[8192];
+      int bytesRead;
+      while (-1 != (bytesRead= is.read(buffer))) {
+        digest.update(buffer, 0, bytesRead);
+      }
+    } finally {
+      is.close();
+    }
+
+    return FileUtils.toHex(digest.digest());
+  }
+
+  /**
+   * Hex-encode the specified bytes
+   *
+   * @param  byte[] bytes
+   * @return java.lang.String
+   */
+  public static String toHex(byte[] bytes) {
+    StringBuilder sb= new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Get path of the specified file relative to the specified directory
+   *
+   * @param  java.io.File file
+   * @param  java.io.File directory
+   * @return java.lang.String null if file is not inside directory
+   */
+  public static String getRelativePath(File file, File directory) {
+    String filePath      = file.getAbsolutePath();
+    String directoryPath = directory.getAbsolutePath() + File.separator;
+    if (!filePath.startsWith(directoryPath)) return null;
+    return filePath.substring(directoryPath.length());
+  }
 }
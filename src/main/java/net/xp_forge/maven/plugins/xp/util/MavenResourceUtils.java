@@ -8,7 +8,9 @@ package net.xp_forge.maven.plugins.xp.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Set;
 import java.util.List;
+import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Collections;
 
@@ -18,6 +20,10 @@ import org.apache.maven.execution.MavenSession;
 import org.apache.maven.shared.filtering.MavenResourcesExecution;
 import org.apache.maven.shared.filtering.MavenFilteringException;
 import org.apache.maven.shared.filtering.MavenResourcesFiltering;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex;
+import net.xp_forge.maven.plugins.xp.io.FingerprintIndex.Fingerprint;
 
 /**
  * Utility class
@@ -91,4 +97,133 @@ public final class MavenResourceUtils {
       throw new IOException("Failed to copy resources", ex);
     }
   }
+
+  /**
+   * Copy resources that need no filtering, only touching files that changed since the last
+   * copy. Size and last modified time of the copied files are kept in the specified index
+   * file; files copied by a previous run whose source no longer exists are removed
+   *
+   * @param  java.util.List<org.apache.maven.model.Resource> resources Filtering must be disabled
+   * @param  java.io.File targetDirectory
+   * @param  java.io.File basedir Base for relative resource directories
+   * @param  java.io.File indexFile
+   * @param  boolean overwrite Copy all files regardless of the index
+   * @return int Number of copied files
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public static int syncResources(List<Resource> resources, File targetDirectory, File basedir, File indexFile, boolean overwrite) throws IOException {
+    return MavenResourceUtils.syncResources(resources, targetDirectory, basedir, indexFile, overwrite, false);
+  }
+
+  /**
+   * Same as syncResources() above; if link is true, files are hard-linked into the target
+   * directory instead of copied. Copying is used where linking is not possible (e.g. target
+   * directory on another device); the index then records the fallback ("mode=link,fallback=copy").
+   * In link mode, files are only up to date if they still are links to their sources, so
+   * copies made by a fallback are linked once linking works again
+   *
+   * Reflinks (copy-on-write clones) are not used: there is no portable way to create them
+   * from Java, and hard links give the same saving where the target is on the same device
+   *
+   * @param  java.util.List<org.apache.maven.model.Resource> resources Filtering must be disabled
+   * @param  java.io.File targetDirectory
+   * @param  java.io.File basedir Base for relative resource directories
+   * @param  java.io.File indexFile
+   * @param  boolean overwrite Copy all files regardless of the index
+   * @param  boolean link Hard-link files instead of copying them
+   * @return int Number of copied or linked files
+   * @throws java.io.IOException when I/O errors occur
+   */
+  public static int syncResources(List<Resource> resources, File targetDirectory, File basedir, File indexFile, boolean overwrite, boolean link) throws IOException {
+    FingerprintIndex index= new FingerprintIndex();
+    try {
+      index.load(indexFile);
+    } catch (IOException ex) {
+      index.clear();
+    }
+
+    // Switching between copy and link mode; replace all files
+    String signature= link ? "mode=link" : "mode=copy";
+    String recorded = index.getSignature();
+    if (null == recorded || !(recorded.equals(signature) || recorded.startsWith(signature + ","))) {
+      overwrite= true;
+    }
+    boolean fallback= false;
+
+    // Copy new and changed files
+    Set<String> seen = new HashSet<String>();
+    int copied       = 0;
+    for (Resource resource : resources) {
+      if (resource.isFiltering()) {
+        throw new IllegalArgumentException("Cannot sync filtered resource [" + resource.getDirectory() + "]");
+      }
+
+      File sourceDirectory= new File(resource.getDirectory());
+      if (!sourceDirectory.isAbsolute()) sourceDirectory= new File(basedir, resource.getDirectory());
+      if (!sourceDirectory.isDirectory()) continue;
+
+      File resourceTargetDirectory= targetDirectory;
+      if (null != resource.getTargetPath()) resourceTargetDirectory= new File(targetDirectory, resource.getTargetPath());
+
+      // Find files to copy
+      DirectoryScanner scanner= new DirectoryScanner();
+      scanner.setBasedir(sourceDirectory);
+      if (null != resource.getIncludes() && !resource.getIncludes().isEmpty()) {
+        scanner.setIncludes((String[])resource.getIncludes().toArray(new String[0]));
+      }
+      if (null != resource.getExcludes() && !resource.getExcludes().isEmpty()) {
+        scanner.setExcludes((String[])resource.getExcludes().toArray(new String[0]));
+      }
+      scanner.addDefaultExcludes();
+      scanner.scan();
+
+      for (String name : scanner.getIncludedFiles()) {
+        File source   = new File(sourceDirectory, name);
+        File target   = new File(resourceTargetDirectory, name);
+        String output = FileUtils.getRelativePath(target, targetDirectory);
+        String path   = source.getAbsolutePath();
+        seen.add(path);
+
+        // Unchanged and still there
+        Fingerprint fingerprint= index.get(path);
+        if (
+          !overwrite &&
+          null != fingerprint &&
+          fingerprint.matches(source) &&
+          fingerprint.outputs.contains(output) &&
+          target.exists() &&
+          target.length() == source.length() &&
+          (!link || FileUtils.isSameFile(source, target))
+        ) continue;
+
+        // Remove old file first, as it may be a link to the source
+        target.delete();
+        if (!link || !FileUtils.linkFile(source, target)) {
+          if (link) fallback= true;
+          link= false;    // Do not retry for the remaining files
+          FileUtils.copyFile(source, target);
+          target.setLastModified(source.lastModified());
+        }
+        copied++;
+
+        fingerprint= new Fingerprint(source);
+        fingerprint.outputs.add(output);
+        index.put(fingerprint);
+      }
+    }
+
+    // Remove files copied from sources that no longer exist
+    for (String path : new ArrayList<String>(index.paths())) {
+      if (seen.contains(path)) continue;
+
+      for (String output : index.remove(path).outputs) {
+        new File(targetDirectory, output).delete();
+      }
+    }
+
+    // Record the mode actually used
+    index.setSignature(fallback ? signature + ",fallback=copy" : signature);
+    index.dump(indexFile);
+    return copied;
+  }
 }
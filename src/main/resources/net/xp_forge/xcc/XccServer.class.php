@@ -0,0 +1,70 @@
+<?php
+/* This class is part of the XP-Framework Maven plugin
+ *
+ * $Id$
+ */
+
+  uses('lang.reflect.TargetInvocationException', 'lang.SystemExit');
+
+  /**
+   * Compile server used by the XP-Framework Maven plugin. Reads one line of
+   * tab-separated xcc arguments per request from standard input, runs the
+   * compiler and terminates its output with "@@xcc-done {exitcode}". An
+   * empty line or end of input stops the server.
+   *
+   * Leading "-cp {path}" pairs are registered by the server itself, for the
+   * current request only: paths prefixed with "!" (patches) take precedence
+   * over the ones already registered, as in project.pth.
+   *
+   */
+  class XccServer extends Object {
+
+    /**
+     * Entry point
+     *
+     * @param   string[] args
+     * @return  int
+     */
+    public static function main(array $args) {
+      $runner= XPClass::forName('xp.compiler.Runner')->getMethod('main');
+      while (FALSE !== ($line= fgets(STDIN))) {
+        $line= rtrim($line, "\r\n");
+        if ('' === $line) break;
+
+        // Register class path for this request
+        $args= explode("\t", $line);
+        $registered= ClassLoader::getLoaders();
+        $loaders= array();
+        while (isset($args[1]) && '-cp' === $args[0]) {
+          if ('!' === substr($args[1], 0, 1)) {
+            $loaders[]= ClassLoader::registerPath(substr($args[1], 1), TRUE);
+          } else {
+            $loaders[]= ClassLoader::registerPath($args[1]);
+          }
+          $args= array_slice($args, 2);
+        }
+
+        try {
+          $exit= (int)$runner->invoke(NULL, array($args));
+        } catch (TargetInvocationException $e) {
+          $cause= $e->getCause();
+          if ($cause instanceof SystemExit) {
+            $exit= $cause->getCode();
+          } else {
+            fputs(STDOUT, '*** Error: '.$cause->toString()."\n");
+            $exit= 255;
+          }
+        }
+
+        // Remove class path again, except for loaders registered before
+        foreach ($loaders as $loader) {
+          if (!in_array($loader, $registered, TRUE)) ClassLoader::removeLoader($loader);
+        }
+
+        fputs(STDOUT, '@@xcc-done '.$exit."\n");
+        fflush(STDOUT);
+      }
+      return 0;
+    }
+  }
+?>
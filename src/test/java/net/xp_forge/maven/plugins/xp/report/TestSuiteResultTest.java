@@ -0,0 +1,83 @@
+/**
+ * This file is part of the XP-Framework
+ *
+ * XP-Framework Maven plugin
+ * Copyright (c) 2011, XP-Framework Team
+ */
+package net.xp_forge.maven.plugins.xp.report;
+
+import org.junit.Test;
+import org.junit.Before;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests which suites are retried, see AbstractTestMojo.executeUnittestRunner()
+ *
+ */
+public class TestSuiteResultTest {
+  private TestSuiteResult suite;
+  private UnittestOutputParser parser;
+
+  /**
+   * Set up parser for a fresh suite
+   *
+   * @return void
+   */
+  @Before
+  public void setUp() {
+    this.suite  = new TestSuiteResult("fixture");
+    this.parser = new UnittestOutputParser(this.suite);
+  }
+
+  /**
+   * A suite with failed tests is retried
+   *
+   * @return void
+   */
+  @Test
+  public void failedSuiteIsRetryable() {
+    this.parser.outputLine("[..F]");
+    this.parser.outputLine("F unittest.TestAssertionFailed(test= pkg.FooTest::testBar, time= 0.001 seconds) {");
+    this.parser.outputLine("  unittest.AssertionFailedError{ Expected 1 but was 2 }");
+    this.parser.outputLine(" }");
+    this.parser.outputLine("FAIL: 3/3 run (0 skipped), 2 succeeded, 1 failed");
+    this.parser.finish(100, new RuntimeException("Exit code 1"));
+
+    assertTrue(this.suite.isFailed());
+    assertTrue(this.suite.isRetryable());
+  }
+
+  /**
+   * A suite whose runner was killed after its timeout is not retried, although the
+   * synthetic "(timeout)" test case makes its cases non-empty
+   *
+   * @return void
+   */
+  @Test
+  public void timedOutSuiteIsNotRetryable() {
+    this.parser.outputLine("[..");
+    this.suite.timedOut= true;
+    this.parser.finish(60000, new RuntimeException("Killed"));
+
+    assertEquals(1, this.suite.cases.size());
+    assertEquals("(timeout)", this.suite.cases.get(0).name);
+    assertTrue(this.suite.isFailed());
+    assertFalse(this.suite.isRetryable());
+  }
+
+  /**
+   * A suite whose runner failed without reporting any test is not retried
+   *
+   * @return void
+   */
+  @Test
+  public void suiteWithoutResultsIsNotRetryable() {
+    this.parser.outputLine("Uncaught exception: lang.ClassNotFoundException (Class \"pkg.FooTest\" could not be found)");
+    this.parser.finish(100, new RuntimeException("Exit code 255"));
+
+    assertEquals("(unittest runner)", this.suite.cases.get(0).name);
+    assertFalse(this.suite.isRetryable());
+  }
+}